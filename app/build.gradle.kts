@@ -14,6 +14,10 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Codificação das fotos enviadas: AS_PREPARED, JPEG ou WEBP
+        buildConfigField("String", "UPLOAD_ENCODER_MODE", "\"JPEG\"")
+        buildConfigField("long", "UPLOAD_TARGET_BYTES", "409600L")
     }
 
     buildTypes {
@@ -63,6 +67,7 @@ dependencies {
     implementation(libs.constraintlayout)
     implementation("com.auth0.android:jwtdecode:2.0.2")
     implementation("androidx.recyclerview:recyclerview:1.3.2")
+    implementation("androidx.exifinterface:exifinterface:1.3.7")
     // ADICIONADO: Dependências para chamadas de API (Retrofit)
     implementation("com.squareup.retrofit2:retrofit:2.9.0")
     implementation("com.squareup.retrofit2:converter-gson:2.9.0")
@@ -82,6 +87,8 @@ dependencies {
     // ADICIONADO: Dependências para funcionalidade offline
     implementation(libs.room.runtime)
     annotationProcessor(libs.room.compiler)
+    implementation(libs.room.paging)
+    implementation(libs.paging.runtime)
     implementation(libs.work.runtime)
     
     // Conectividade de rede
@@ -90,6 +97,7 @@ dependencies {
 
     // Dependências de teste
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.example.zylogi_motoristas.offline;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Confere com EXPLAIN QUERY PLAN que as consultas por dia de cached_pickups usam o índice composto
+ */
+@RunWith(AndroidJUnit4.class)
+public class PickupDaoQueryPlanTest {
+
+    private static final String DAY_INDEX = "index_cached_pickups_driver_id_scheduled_day_status";
+    private static final String DRIVER_ID = "driver-1";
+
+    private OfflineDatabase database;
+    private SupportSQLiteDatabase sqlite;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, OfflineDatabase.class).build();
+        sqlite = database.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    private String queryPlan(String sql, Object... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = sqlite.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    private void assertUsesDayIndex(String plan) {
+        assertTrue("Plano sem o índice por dia:\n" + plan, plan.contains(DAY_INDEX));
+        assertFalse("Plano com varredura da tabela:\n" + plan, plan.contains("SCAN cached_pickups"));
+    }
+
+    @Test
+    public void routeForDayUsesCompositeIndex() {
+        assertUsesDayIndex(queryPlan(PickupDao.SELECT_ROUTE_FOR_DAY, DRIVER_ID, ScheduledDay.today()));
+    }
+
+    @Test
+    public void openPickupsPagedUsesCompositeIndex() {
+        String plan = queryPlan(PickupDao.SELECT_OPEN_PICKUPS_PAGED, DRIVER_ID, ScheduledDay.today());
+        assertUsesDayIndex(plan);
+        assertTrue("Plano sem a subconsulta de pendentes:\n" + plan, plan.contains("pending_operations"));
+    }
+
+    @Test
+    public void routeProgressUsesCompositeIndex() {
+        String plan = queryPlan(PickupDao.SELECT_ROUTE_PROGRESS, DRIVER_ID, ScheduledDay.today());
+        assertUsesDayIndex(plan);
+        assertTrue("Plano sem a subconsulta de pendentes:\n" + plan, plan.contains("pending_operations"));
+    }
+
+    @Test
+    public void dayRangeUsesCompositeIndex() {
+        long today = ScheduledDay.today();
+        assertUsesDayIndex(queryPlan(PickupDao.SELECT_DAY_RANGE, DRIVER_ID, today - 7, today));
+    }
+
+    @Test
+    public void pendingByDriverUsesCompositeIndex() {
+        assertUsesDayIndex(queryPlan(PickupDao.SELECT_PENDING_BY_DRIVER, DRIVER_ID));
+    }
+
+    @Test
+    public void backfillExpressionMatchesScheduledDay() {
+        String[] dates = {"2026-10-18", "2026-10-18T23:30:00.000Z", "2024-02-29T00:00:00-03:00", "1970-01-01"};
+        for (String date : dates) {
+            try (Cursor cursor = sqlite.query(
+                    "SELECT CAST(julianday(substr(?, 1, 10)) - 2440587.5 AS INTEGER)", new Object[]{date})) {
+                assertTrue(cursor.moveToFirst());
+                assertEquals(date, ScheduledDay.of(date), cursor.getLong(0));
+            }
+        }
+    }
+
+    @Test
+    public void routeForDayIncludesUnscheduledPickups() {
+        long today = ScheduledDay.today();
+        PickupDao dao = database.pickupDao();
+
+        List<PickupEntity> route = new ArrayList<>();
+        route.add(pickup("today", LocalDate.ofEpochDay(today) + "T08:00:00.000Z"));
+        route.add(pickup("yesterday", LocalDate.ofEpochDay(today - 1) + "T08:00:00.000Z"));
+        route.add(pickup("unscheduled", null));
+        dao.insertOrUpdateAll(route);
+
+        List<String> ids = new ArrayList<>();
+        for (PickupEntity entity : dao.getPickupsByDriverIdAndDay(DRIVER_ID, today)) {
+            ids.add(entity.getId());
+        }
+        Collections.sort(ids);
+        assertEquals(Arrays.asList("today", "unscheduled"), ids);
+    }
+
+    private static PickupEntity pickup(String id, String scheduledDate) {
+        PickupEntity entity = new PickupEntity();
+        entity.setId(id);
+        entity.setScheduledDate(scheduledDate);
+        entity.setStatus("PENDING");
+        entity.setDriverId(DRIVER_ID);
+        return entity;
+    }
+}
@@ -3,6 +3,8 @@ package com.example.zylogi_motoristas;// Local: app/src/main/java/com/example/zy
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.Query;
 import java.util.List;
@@ -23,7 +25,8 @@ public interface ApiService {
     Call<List<Pickup>> getPickups(
             @Query("driverId") String driverId,
             @Query("startDate") String startDate,
-            @Query("endDate") String endDate
+            @Query("endDate") String endDate,
+            @Query("updatedSince") String updatedSince // opcional: null envia a rota inteira
     );
 
     @GET("occurrences/driver")
@@ -33,17 +36,24 @@ public interface ApiService {
     Call<Pickup> getPickupById(@Path("id") String pickupId);
 
     // Método para finalizar coletas - usa Map para enviar apenas campos necessários
+    // Idempotency-Key: repetições com a mesma chave não finalizam a coleta duas vezes (null = omitido)
     @PATCH("pickups/{id}/driver-finalize-app")
     Call<Pickup> finalizePickup(
             @Path("id") String pickupId,
+            @Header("Idempotency-Key") String idempotencyKey,
             @Body Map<String, Object> updates
     );
 
+    // Finaliza várias coletas sem foto em uma única requisição
+    @POST("pickups/driver-finalize-app/batch")
+    Call<BatchFinalizeResponse> finalizePickupsBatch(@Body BatchFinalizeRequest request);
+
     // Método para finalizar coletas com foto usando multipart/form-data
     @Multipart
     @PATCH("pickups/{id}/driver-finalize-app")
     Call<Pickup> finalizePickupWithPhoto(
             @Path("id") String pickupId,
+            @Header("Idempotency-Key") String idempotencyKey,
             @Part("status") RequestBody status,
             @Part("observationDriver") RequestBody observationDriver,
             @Part("occurrenceId") RequestBody occurrenceId,
@@ -51,4 +61,21 @@ public interface ApiService {
             @Part("driverNumberPackages") RequestBody driverNumberPackages,
             @Part MultipartBody.Part driverAttachmentUrl
     );
-}
\ No newline at end of file
+
+    // Upload retomável de fotos: cria o upload, consulta o offset confirmado e envia trechos
+    @POST("uploads")
+    Call<Void> createUpload(
+            @Header("Upload-Length") long uploadLength,
+            @Header("Upload-Content-Type") String contentType
+    );
+
+    @HEAD("uploads/{id}")
+    Call<Void> getUploadOffset(@Path("id") String uploadId);
+
+    @PATCH("uploads/{id}")
+    Call<Void> uploadChunk(
+            @Path("id") String uploadId,
+            @Header("Upload-Offset") long offset,
+            @Body RequestBody chunk
+    );
+}
@@ -0,0 +1,51 @@
+package com.example.zylogi_motoristas;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Corpo da finalização em lote: várias coletas sem foto em uma única requisição
+ */
+public class BatchFinalizeRequest {
+
+    @SerializedName("items")
+    private final List<Item> items;
+
+    public BatchFinalizeRequest(List<Item> items) {
+        this.items = items;
+    }
+
+    public List<Item> getItems() { return items; }
+
+    /**
+     * Uma finalização do lote; clientId identifica o item na resposta,
+     * idempotencyKey é a mesma do PATCH individual e updates tem os mesmos campos
+     */
+    public static class Item {
+        @SerializedName("clientId")
+        private final String clientId;
+
+        @SerializedName("pickupId")
+        private final String pickupId;
+
+        @SerializedName("idempotencyKey")
+        private final String idempotencyKey;
+
+        @SerializedName("updates")
+        private final Map<String, Object> updates;
+
+        public Item(String clientId, String pickupId, String idempotencyKey, Map<String, Object> updates) {
+            this.clientId = clientId;
+            this.pickupId = pickupId;
+            this.idempotencyKey = idempotencyKey;
+            this.updates = updates;
+        }
+
+        public String getClientId() { return clientId; }
+        public String getPickupId() { return pickupId; }
+        public String getIdempotencyKey() { return idempotencyKey; }
+        public Map<String, Object> getUpdates() { return updates; }
+    }
+}
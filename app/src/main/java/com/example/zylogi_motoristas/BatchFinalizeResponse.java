@@ -0,0 +1,46 @@
+package com.example.zylogi_motoristas;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+/**
+ * Resposta da finalização em lote, com o resultado de cada item
+ */
+public class BatchFinalizeResponse {
+
+    @SerializedName("results")
+    private List<ItemResult> results;
+
+    public BatchFinalizeResponse(List<ItemResult> results) {
+        this.results = results;
+    }
+
+    public List<ItemResult> getResults() { return results; }
+
+    public static class ItemResult {
+        @SerializedName("clientId")
+        private String clientId;
+
+        @SerializedName("success")
+        private boolean success;
+
+        @SerializedName("status")
+        private int status; // Código HTTP equivalente ao do PATCH individual
+
+        @SerializedName("error")
+        private String error;
+
+        public ItemResult(String clientId, boolean success, int status, String error) {
+            this.clientId = clientId;
+            this.success = success;
+            this.status = status;
+            this.error = error;
+        }
+
+        public String getClientId() { return clientId; }
+        public boolean isSuccess() { return success; }
+        public int getStatus() { return status; }
+        public String getError() { return error; }
+    }
+}
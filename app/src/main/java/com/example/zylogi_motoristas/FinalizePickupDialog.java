@@ -6,20 +6,21 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.provider.MediaStore;
-import android.util.Base64;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.ImageView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.core.content.ContextCompat;
-import java.io.ByteArrayOutputStream;
+import com.example.zylogi_motoristas.photo.AttachmentPreparer;
+import com.example.zylogi_motoristas.photo.PhotoAttachment;
 import java.util.ArrayList;
 import java.util.List;
 import retrofit2.Call;
@@ -40,11 +41,13 @@ public class FinalizePickupDialog extends Dialog {
     private TextView labelOccurrence, labelQuantity;
     private Button buttonCancel, buttonFinalize, buttonCamera, buttonGallery;
     private TextView textViewPhotoStatus;
+    private ImageView imageViewPhotoPreview;
     private OnFinalizeListener listener;
     private List<Occurrence> occurrenceList;
     private ApiService apiService;
     private AuthSessionManager authSessionManager;
-    private String photoBase64 = null;
+    private PhotoAttachment photoAttachment = null;
+    private boolean photoSubmitted = false; // Foto entregue ao MainViewModel, que passa a ser o dono dela
     private Pickup currentPickup;
 
     public FinalizePickupDialog(@NonNull Context context, Pickup pickup, OnFinalizeListener listener) {
@@ -74,6 +77,7 @@ public class FinalizePickupDialog extends Dialog {
         buttonCamera = view.findViewById(R.id.buttonCamera);
         buttonGallery = view.findViewById(R.id.buttonGallery);
         textViewPhotoStatus = view.findViewById(R.id.textViewPhotoStatus);
+        imageViewPhotoPreview = view.findViewById(R.id.imageViewPhotoPreview);
 
         // Para coletas coletadas, ocultar spinner de ocorrências e mostrar campo de quantidade
         labelOccurrence.setVisibility(View.GONE);
@@ -390,19 +394,8 @@ public class FinalizePickupDialog extends Dialog {
 
     public void onPhotoTaken(Bitmap photo) {
         if (photo != null) {
-            Log.d("FinalizePickupDialog", "=== PROCESSANDO FOTO ===");
-            Log.d("FinalizePickupDialog", "Bitmap recebido - Width: " + photo.getWidth() + ", Height: " + photo.getHeight());
-            
-            // Converter bitmap para base64
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            photo.compress(Bitmap.CompressFormat.JPEG, 80, byteArrayOutputStream);
-            byte[] byteArray = byteArrayOutputStream.toByteArray();
-            photoBase64 = Base64.encodeToString(byteArray, Base64.NO_WRAP);
-            
-            Log.d("FinalizePickupDialog", "Foto convertida para Base64 - Tamanho: " + byteArray.length + " bytes");
-            Log.d("FinalizePickupDialog", "Base64 length: " + photoBase64.length() + " caracteres");
-            Log.d("FinalizePickupDialog", "Base64 preview (primeiros 100 chars): " + photoBase64.substring(0, Math.min(100, photoBase64.length())));
-            
+            Log.d("FinalizePickupDialog", "Foto recebida - Width: " + photo.getWidth() + ", Height: " + photo.getHeight());
+            attachPhoto(photo);
             textViewPhotoStatus.setText("✅ Foto capturada");
             textViewPhotoStatus.setTextColor(ContextCompat.getColor(getContext(), android.R.color.holo_green_dark));
         } else {
@@ -412,20 +405,8 @@ public class FinalizePickupDialog extends Dialog {
     
     public void onPhotoSelected(Bitmap photo) {
         if (photo != null) {
-            Log.d("FinalizePickupDialog", "=== PROCESSANDO FOTO DA GALERIA ===");
-            Log.d("FinalizePickupDialog", "Bitmap recebido - Width: " + photo.getWidth() + ", Height: " + photo.getHeight());
-            
-            // Converter para Base64
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            photo.compress(Bitmap.CompressFormat.JPEG, 80, byteArrayOutputStream);
-            byte[] byteArray = byteArrayOutputStream.toByteArray();
-            photoBase64 = Base64.encodeToString(byteArray, Base64.NO_WRAP);
-            
-            Log.d("FinalizePickupDialog", "Foto da galeria convertida para Base64");
-            Log.d("FinalizePickupDialog", "Tamanho do array de bytes: " + byteArray.length);
-            Log.d("FinalizePickupDialog", "Tamanho da string Base64: " + photoBase64.length());
-            Log.d("FinalizePickupDialog", "Preview Base64: " + photoBase64.substring(0, Math.min(50, photoBase64.length())));
-            Log.d("FinalizePickupDialog", "Foto da galeria salva como Base64 com sucesso!");
+            Log.d("FinalizePickupDialog", "Foto da galeria recebida - Width: " + photo.getWidth() + ", Height: " + photo.getHeight());
+            attachPhoto(photo);
             textViewPhotoStatus.setText("✅ Foto da galeria selecionada!");
             textViewPhotoStatus.setTextColor(ContextCompat.getColor(getContext(), android.R.color.holo_green_dark));
         } else {
@@ -434,11 +415,20 @@ public class FinalizePickupDialog extends Dialog {
             textViewPhotoStatus.setTextColor(ContextCompat.getColor(getContext(), android.R.color.holo_red_dark));
         }
     }
+    
+    // Mostra a miniatura na hora; a codificação do JPEG acontece em background
+    private void attachPhoto(Bitmap photo) {
+        if (photoAttachment != null) {
+            photoAttachment.discard();
+        }
+        photoAttachment = AttachmentPreparer.getInstance(getContext()).prepare(photo);
+        imageViewPhotoPreview.setImageBitmap(photoAttachment.getThumbnail());
+        imageViewPhotoPreview.setVisibility(View.VISIBLE);
+    }
 
     private void finalizePickupWithDetails(Occurrence occurrence, String observation) {
         // occurrenceId agora é opcional - enviar apenas se uma ocorrência foi selecionada
         String occurrenceId = (occurrence != null && occurrence.getId() != null) ? occurrence.getId() : null;
-        String driverAttachmentUrl = photoBase64 != null ? "data:image/jpeg;base64," + photoBase64 : "";
         
         // Obter quantidade de itens coletados
         String quantityText = editTextQuantity.getText().toString().trim();
@@ -456,13 +446,7 @@ public class FinalizePickupDialog extends Dialog {
         Log.d("FinalizePickupDialog", "Pickup ID: " + currentPickup.getId());
         Log.d("FinalizePickupDialog", "Observação: '" + observation + "'");
         Log.d("FinalizePickupDialog", "Occurrence ID: '" + occurrenceId + "'");
-        Log.d("FinalizePickupDialog", "photoBase64 is null: " + (photoBase64 == null));
-        if (photoBase64 != null) {
-            Log.d("FinalizePickupDialog", "photoBase64 length: " + photoBase64.length());
-            Log.d("FinalizePickupDialog", "photoBase64 preview: " + photoBase64.substring(0, Math.min(50, photoBase64.length())));
-        }
-        Log.d("FinalizePickupDialog", "driverAttachmentUrl: " + driverAttachmentUrl);
-        Log.d("FinalizePickupDialog", "driverAttachmentUrl length: " + (driverAttachmentUrl != null ? driverAttachmentUrl.length() : "null"));
+        Log.d("FinalizePickupDialog", "Foto: " + (photoAttachment != null ? "presente" : "ausente"));
         
         Log.d("FinalizePickupDialog", "Occurrence ID para envio: " + (occurrenceId != null ? occurrenceId : "null (opcional)"));
         
@@ -493,9 +477,10 @@ public class FinalizePickupDialog extends Dialog {
                 currentPickup, 
                 observation, 
                 occurrenceId, 
-                driverAttachmentUrl,
+                photoAttachment,
                 driverNumberPackages
             );
+            photoSubmitted = true;
             Log.d("FinalizePickupDialog", "Chamada do MainViewModel concluída");
         } else {
             Log.e("FinalizePickupDialog", "Não foi possível obter MainActivity. Context: " + getContext().getClass().getSimpleName());
@@ -546,4 +531,14 @@ public class FinalizePickupDialog extends Dialog {
         Log.i("FinalizePickupDialog", "Criada ocorrência padrão offline (sem ID para evitar erro de UUID): " + defaultOccurrence.getName());
         return defaultOccurrence;
     }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Cancelado ou fechado sem finalizar: a foto preparada não será usada
+        if (!photoSubmitted && photoAttachment != null) {
+            photoAttachment.discard();
+            photoAttachment = null;
+        }
+    }
 }
\ No newline at end of file
@@ -6,20 +6,21 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.provider.MediaStore;
-import android.util.Base64;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.ImageView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.core.content.ContextCompat;
-import java.io.ByteArrayOutputStream;
+import com.example.zylogi_motoristas.photo.AttachmentPreparer;
+import com.example.zylogi_motoristas.photo.PhotoAttachment;
 import java.util.ArrayList;
 import java.util.List;
 import retrofit2.Call;
@@ -38,11 +39,13 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
     private EditText editTextObservation;
     private Button buttonCancel, buttonFinalize, buttonCamera, buttonGallery;
     private TextView textViewPhotoStatus;
+    private ImageView imageViewPhotoPreview;
     private OnFinalizeListener listener;
     private List<Occurrence> occurrenceList;
     private ApiService apiService;
     private AuthSessionManager authSessionManager;
-    private String photoBase64 = null;
+    private PhotoAttachment photoAttachment = null;
+    private boolean photoSubmitted = false; // Foto entregue ao MainViewModel, que passa a ser o dono dela
     private Pickup currentPickup;
 
     public FinalizePickupNotCompletedDialog(@NonNull Context context, Pickup pickup, OnFinalizeListener listener) {
@@ -68,6 +71,7 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
         buttonCamera = view.findViewById(R.id.buttonCamera);
         buttonGallery = view.findViewById(R.id.buttonGallery);
         textViewPhotoStatus = view.findViewById(R.id.textViewPhotoStatus);
+        imageViewPhotoPreview = view.findViewById(R.id.imageViewPhotoPreview);
         
         // Configurar o texto do pickup
         if (pickup != null && pickup.getReferenceId() != null) {
@@ -304,27 +308,14 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
 
     public void onPhotoTaken(Bitmap photo) {
         if (photo != null) {
-            Log.d("FinalizePickupNotCompletedDialog", "=== PROCESSANDO FOTO DA CÂMERA ====");
-            Log.d("FinalizePickupNotCompletedDialog", "Bitmap recebido - Width: " + photo.getWidth() + ", Height: " + photo.getHeight());
-            
-            // Converter para Base64
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            photo.compress(Bitmap.CompressFormat.JPEG, 80, byteArrayOutputStream);
-            byte[] byteArray = byteArrayOutputStream.toByteArray();
-            photoBase64 = Base64.encodeToString(byteArray, Base64.NO_WRAP);
-            
-            Log.d("FinalizePickupNotCompletedDialog", "Foto convertida para Base64 - Tamanho: " + byteArray.length + " bytes");
-            Log.d("FinalizePickupNotCompletedDialog", "Base64 length: " + photoBase64.length() + " caracteres");
-            Log.d("FinalizePickupNotCompletedDialog", "Base64 preview (primeiros 100 chars): " + photoBase64.substring(0, Math.min(100, photoBase64.length())));
+            Log.d("FinalizePickupNotCompletedDialog", "Foto da câmera recebida - Width: " + photo.getWidth() + ", Height: " + photo.getHeight());
             
             // Atualizar UI
             runOnUiThread(() -> {
+                attachPhoto(photo);
                 textViewPhotoStatus.setText("✅ Foto capturada");
                 textViewPhotoStatus.setTextColor(getContext().getResources().getColor(android.R.color.holo_green_dark));
-                Log.d("FinalizePickupNotCompletedDialog", "UI atualizada: textViewPhotoStatus = '✅ Foto capturada'");
             });
-            
-            Log.d("FinalizePickupNotCompletedDialog", "Foto da câmera salva como Base64 com sucesso!");
         } else {
             Log.e("FinalizePickupNotCompletedDialog", "Erro: Bitmap da foto da câmera é nulo");
             runOnUiThread(() -> {
@@ -334,6 +325,16 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
         }
     }
     
+    // Mostra a miniatura na hora; a codificação do JPEG acontece em background
+    private void attachPhoto(Bitmap photo) {
+        if (photoAttachment != null) {
+            photoAttachment.discard();
+        }
+        photoAttachment = AttachmentPreparer.getInstance(getContext()).prepare(photo);
+        imageViewPhotoPreview.setImageBitmap(photoAttachment.getThumbnail());
+        imageViewPhotoPreview.setVisibility(View.VISIBLE);
+    }
+    
     private void runOnUiThread(Runnable action) {
         if (getContext() instanceof android.app.Activity) {
             ((android.app.Activity) getContext()).runOnUiThread(action);
@@ -398,29 +399,15 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
     
     public void onPhotoSelected(Bitmap photo) {
         if (photo != null) {
-            Log.d("FinalizePickupNotCompletedDialog", "=== PROCESSANDO FOTO DA GALERIA ====");
-            Log.d("FinalizePickupNotCompletedDialog", "Bitmap recebido - Width: " + photo.getWidth() + ", Height: " + photo.getHeight());
-            
-            // Converter para Base64
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            photo.compress(Bitmap.CompressFormat.JPEG, 80, byteArrayOutputStream);
-            byte[] byteArray = byteArrayOutputStream.toByteArray();
-            photoBase64 = Base64.encodeToString(byteArray, Base64.NO_WRAP);
-            
-            Log.d("FinalizePickupNotCompletedDialog", "Foto da galeria convertida para Base64");
-            Log.d("FinalizePickupNotCompletedDialog", "Tamanho do array de bytes: " + byteArray.length);
-            Log.d("FinalizePickupNotCompletedDialog", "Tamanho da string Base64: " + photoBase64.length());
-            Log.d("FinalizePickupNotCompletedDialog", "Preview Base64: " + photoBase64.substring(0, Math.min(50, photoBase64.length())));
+            Log.d("FinalizePickupNotCompletedDialog", "Foto da galeria recebida - Width: " + photo.getWidth() + ", Height: " + photo.getHeight());
             
             // Atualizar UI na thread principal
             runOnUiThread(() -> {
+                attachPhoto(photo);
                 textViewPhotoStatus.setText("✅ Foto da galeria selecionada!");
                 textViewPhotoStatus.setTextColor(getContext().getResources().getColor(android.R.color.holo_green_dark));
                 textViewPhotoStatus.setVisibility(View.VISIBLE);
-                Log.d("FinalizePickupNotCompletedDialog", "UI atualizada: textViewPhotoStatus = '✅ Foto da galeria selecionada!'");
             });
-            
-            Log.d("FinalizePickupNotCompletedDialog", "Foto da galeria salva como Base64 com sucesso!");
         } else {
             Log.e("FinalizePickupNotCompletedDialog", "Erro: Bitmap da foto da galeria é nulo");
             runOnUiThread(() -> {
@@ -434,7 +421,6 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
     private void finalizePickupWithDetails(Occurrence occurrence, String observation) {
         // Preparar dados para envio
         String occurrenceId = (occurrence != null && occurrence.getId() != null) ? occurrence.getId() : "";
-        String driverAttachmentUrl = photoBase64 != null ? "data:image/jpeg;base64," + photoBase64 : "";
         
         // Logs de debug detalhados para rastrear os valores
         Log.d("FinalizePickupNotCompletedDialog", "=== DADOS PARA ENVIO (NOT_COMPLETED) ===");
@@ -442,13 +428,7 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
         Log.d("FinalizePickupNotCompletedDialog", "Pickup Reference ID: " + (currentPickup != null ? currentPickup.getReferenceId() : "null"));
         Log.d("FinalizePickupNotCompletedDialog", "Observação: '" + (observation != null ? observation : "vazio") + "'");
         Log.d("FinalizePickupNotCompletedDialog", "Occurrence ID: '" + occurrenceId + "'");
-        Log.d("FinalizePickupNotCompletedDialog", "photoBase64 is null: " + (photoBase64 == null));
-        if (photoBase64 != null) {
-            Log.d("FinalizePickupNotCompletedDialog", "photoBase64 length: " + photoBase64.length());
-            Log.d("FinalizePickupNotCompletedDialog", "photoBase64 preview: " + photoBase64.substring(0, Math.min(50, photoBase64.length())));
-        }
-        Log.d("FinalizePickupNotCompletedDialog", "driverAttachmentUrl: " + driverAttachmentUrl);
-        Log.d("FinalizePickupNotCompletedDialog", "Driver Attachment URL: " + (photoBase64 != null ? "Foto presente (Base64) - " + (photoBase64.length() / 1024) + "KB" : "Sem foto"));
+        Log.d("FinalizePickupNotCompletedDialog", "Foto: " + (photoAttachment != null ? "presente" : "ausente"));
         
         if (occurrence != null) {
             Log.d("FinalizePickupNotCompletedDialog", "Occurrence Name: " + occurrence.getName());
@@ -482,14 +462,14 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
             Log.d("FinalizePickupNotCompletedDialog", "Pickup: " + (currentPickup != null ? currentPickup.getId() : "null"));
             Log.d("FinalizePickupNotCompletedDialog", "Observação: " + observation);
             Log.d("FinalizePickupNotCompletedDialog", "ID da Ocorrência: " + occurrenceId);
-            Log.d("FinalizePickupNotCompletedDialog", "driverAttachmentUrl: " + (driverAttachmentUrl != null && !driverAttachmentUrl.isEmpty() ? "presente" : "vazio"));
             Log.d("FinalizePickupNotCompletedDialog", "Chamando MainViewModel.finalizePickupWithDetailsNotCompleted...");
             activity.getMainViewModel().finalizePickupWithDetailsNotCompleted(
                 currentPickup, 
                 observation, 
                 occurrenceId, 
-                driverAttachmentUrl
+                photoAttachment
             );
+            photoSubmitted = true;
             Log.d("FinalizePickupNotCompletedDialog", "Chamada do MainViewModel concluída");
         } else {
             Log.e("FinalizePickupNotCompletedDialog", "Não foi possível obter MainActivity. Context: " + getContext().getClass().getSimpleName());
@@ -502,4 +482,14 @@ public class FinalizePickupNotCompletedDialog extends Dialog {
         
         dismiss();
     }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Cancelado ou fechado sem finalizar: a foto preparada não será usada
+        if (!photoSubmitted && photoAttachment != null) {
+            photoAttachment.discard();
+            photoAttachment = null;
+        }
+    }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import com.google.android.material.button.MaterialButton;
+import com.example.zylogi_motoristas.offline.SyncManager;
 
 import java.util.concurrent.Executor;
 
@@ -135,6 +136,9 @@ public class LoginActivity extends AppCompatActivity {
                 authSessionManager.saveAuthToken(token);
                 Log.d(TAG, "Token salvo");
 
+                // Operações pausadas pela sessão expirada podem ser enviadas com o novo token
+                SyncManager.getInstance(this).onReauthenticated();
+
                 // Habilita biometria para próximos logins se o dispositivo suportar
                 boolean biometricSupported = isBiometricSupported();
                 boolean biometricAlreadyEnabled = authSessionManager.isBiometricEnabled();
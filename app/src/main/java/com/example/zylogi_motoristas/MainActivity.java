@@ -10,6 +10,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import androidx.annotation.NonNull;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.widget.TextView;
@@ -33,9 +34,8 @@ import java.util.Locale;
 import android.location.Address;
 import android.location.Geocoder;
 import android.net.Uri;
-import android.graphics.BitmapFactory;
-import java.io.IOException;
-import java.io.InputStream;
+import com.example.zylogi_motoristas.photo.PhotoCapture;
+import com.example.zylogi_motoristas.photo.PhotoProcessor;
 
 import com.auth0.android.jwt.JWT;
 
@@ -82,6 +82,8 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
     private ActivityResultLauncher<Intent> galleryLauncher;
     private FinalizePickupDialog currentDialog;
     private FinalizePickupNotCompletedDialog currentNotCompletedDialog;
+    private PhotoCapture photoCapture;
+    private PhotoProcessor photoProcessor;
     
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 100;
@@ -101,6 +103,9 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
 
             setupViews();
             setupCarousel();
+            photoCapture = new PhotoCapture(this);
+            photoCapture.restoreState(savedInstanceState);
+            photoProcessor = PhotoProcessor.getInstance(this);
             setupCameraLauncher();
             setupTopBar();
 
@@ -162,23 +167,31 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
     private void setupCameraLauncher() {
         Log.d("MainActivity", "Configurando cameraLauncher e galleryLauncher");
         
-        // Configurar launcher da câmera
+        // Configurar launcher da câmera (foto gravada em arquivo via EXTRA_OUTPUT)
         cameraLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 Log.d("MainActivity", "Resultado da câmera: " + result.getResultCode());
                 
-                if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                    Bundle extras = result.getData().getExtras();
-                    if (extras != null) {
-                        Bitmap imageBitmap = (Bitmap) extras.get("data");
-                        if (imageBitmap != null) {
+                Uri capturedUri = result.getResultCode() == RESULT_OK ? photoCapture.takeCapturedUri() : null;
+                if (capturedUri != null) {
+                    photoProcessor.process(capturedUri, new PhotoProcessor.PhotoCallback() {
+                        @Override
+                        public void onSuccess(Bitmap bitmap) {
                             Log.d("MainActivity", "Foto capturada com sucesso");
-                            deliverPhotoToDialog(imageBitmap);
+                            photoCapture.release(capturedUri);
+                            deliverPhotoToDialog(bitmap);
                         }
-                    }
+                        
+                        @Override
+                        public void onError(String error) {
+                            photoCapture.release(capturedUri);
+                            Toast.makeText(MainActivity.this, "Erro ao processar foto", Toast.LENGTH_SHORT).show();
+                        }
+                    });
                 } else {
                     Log.d("MainActivity", "Câmera cancelada ou erro");
+                    photoCapture.discardPending();
                 }
             }
         );
@@ -193,23 +206,19 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
                     Uri imageUri = result.getData().getData();
                     if (imageUri != null) {
                         Log.d("MainActivity", "Imagem selecionada da galeria: " + imageUri.toString());
-                        try {
-                            InputStream inputStream = getContentResolver().openInputStream(imageUri);
-                            Bitmap imageBitmap = BitmapFactory.decodeStream(inputStream);
-                            if (imageBitmap != null) {
+                        photoProcessor.process(imageUri, new PhotoProcessor.PhotoCallback() {
+                            @Override
+                            public void onSuccess(Bitmap bitmap) {
                                 Log.d("MainActivity", "Imagem da galeria carregada com sucesso");
-                                deliverPhotoFromGalleryToDialog(imageBitmap);
-                            } else {
-                                Log.e("MainActivity", "Erro ao decodificar imagem da galeria");
-                                Toast.makeText(this, "Erro ao carregar imagem", Toast.LENGTH_SHORT).show();
+                                deliverPhotoFromGalleryToDialog(bitmap);
                             }
-                            if (inputStream != null) {
-                                inputStream.close();
+                            
+                            @Override
+                            public void onError(String error) {
+                                Log.e("MainActivity", "Erro ao carregar imagem da galeria: " + error);
+                                Toast.makeText(MainActivity.this, "Erro ao carregar imagem", Toast.LENGTH_SHORT).show();
                             }
-                        } catch (IOException e) {
-                            Log.e("MainActivity", "Erro ao carregar imagem da galeria: " + e.getMessage());
-                            Toast.makeText(this, "Erro ao carregar imagem", Toast.LENGTH_SHORT).show();
-                        }
+                        });
                     }
                 } else {
                     Log.d("MainActivity", "Galeria cancelada ou erro");
@@ -224,7 +233,9 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
         } else if (currentNotCompletedDialog != null) {
             currentNotCompletedDialog.onPhotoTaken(bitmap);
         } else {
+            // Acontece quando a Activity foi recriada durante a câmera: o diálogo não existe mais
             Log.w("MainActivity", "Nenhum diálogo ativo para receber a foto");
+            Toast.makeText(this, "Abra a finalização novamente e tire a foto", Toast.LENGTH_LONG).show();
         }
     }
     
@@ -373,6 +384,9 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
         // Limpar sessão
         authSessionManager.clearSession();
         
+        // Respostas em cache têm dados da rota do motorista
+        new Thread(RetrofitClient::clearHttpCache).start();
+        
         // Parar atualizações de tempo
         if (timeUpdateRunnable != null) {
             handler.removeCallbacks(timeUpdateRunnable);
@@ -456,6 +470,14 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
         }
     }
     
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (photoCapture != null) {
+            photoCapture.saveState(outState);
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -468,8 +490,8 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
         // MUDANÇA AQUI: Observa a nova lista de coletas ABERTAS
         mainViewModel.openPickups.observe(this, openPickups -> {
             if (openPickups != null) {
-                // Atualiza o adapter do carrossel com a lista filtrada
-                carouselAdapter.setPickups(openPickups);
+                // Entrega as páginas ao adapter; o diff roda em background
+                carouselAdapter.submitData(getLifecycle(), openPickups);
             }
         });
 
@@ -577,7 +599,7 @@ public class MainActivity extends AppCompatActivity implements PickupAdapter.OnP
     
     private void launchCamera() {
         try {
-            Intent cameraIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
+            Intent cameraIntent = photoCapture.createCaptureIntent();
             if (cameraIntent.resolveActivity(getPackageManager()) != null) {
                 Log.d("MainActivity", "Lançando intent da câmera");
                 cameraLauncher.launch(cameraIntent);
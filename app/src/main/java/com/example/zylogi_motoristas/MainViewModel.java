@@ -3,8 +3,14 @@ package com.example.zylogi_motoristas;
 import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
+import androidx.core.util.Pair;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
 import com.auth0.android.jwt.JWT;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -14,6 +20,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 // Removido import java.util.stream.Collectors - não compatível com Android mais antigo
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -21,23 +28,30 @@ import retrofit2.Response;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
-import android.util.Base64;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 // Imports para funcionalidade offline
 import com.example.zylogi_motoristas.offline.OfflineRepository;
 import com.example.zylogi_motoristas.offline.ConnectivityManager;
 import com.example.zylogi_motoristas.offline.SyncManager;
+import com.example.zylogi_motoristas.offline.FileStreamingRequestBody;
+import com.example.zylogi_motoristas.offline.PendingPickupIndex;
+import com.example.zylogi_motoristas.offline.PickupDao;
+import com.example.zylogi_motoristas.offline.ScheduledDay;
+import com.example.zylogi_motoristas.photo.PhotoAttachment;
+import com.example.zylogi_motoristas.photo.UploadEncoder;
+import com.example.zylogi_motoristas.photo.UploadRendition;
 
 public class MainViewModel extends AndroidViewModel {
 
-    // LiveData para a lista de coletas ABERTAS (para o carrossel)
-    private final MutableLiveData<List<Pickup>> _openPickups = new MutableLiveData<>();
-    public LiveData<List<Pickup>> openPickups = _openPickups;
+    // Páginas das coletas ABERTAS da rota do dia (para o carrossel), lidas do cache
+    private static final int CAROUSEL_PAGE_SIZE = 20;
+    private final MutableLiveData<Pair<String, Long>> route = new MutableLiveData<>();
+    public final LiveData<PagingData<PickupCardModel>> openPickups;
 
     // LiveDatas existentes
     private final MutableLiveData<Boolean> _isLoading = new MutableLiveData<>();
@@ -47,11 +61,9 @@ public class MainViewModel extends AndroidViewModel {
     private final MutableLiveData<String> _updateResult = new MutableLiveData<>();
     public LiveData<String> updateResult = _updateResult;
 
-    // LiveDatas para o progresso
-    private final MutableLiveData<Integer> _progressPercentage = new MutableLiveData<>(0);
-    public LiveData<Integer> progressPercentage = _progressPercentage;
-    private final MutableLiveData<String> _progressSummary = new MutableLiveData<>("Nenhuma coleta hoje");
-    public LiveData<String> progressSummary = _progressSummary;
+    // LiveDatas para o progresso, calculadas pelo banco a partir da rota do dia
+    public final LiveData<Integer> progressPercentage;
+    public final LiveData<String> progressSummary;
 
     private AuthSessionManager authSessionManager;
     private ApiService apiService;
@@ -60,6 +72,19 @@ public class MainViewModel extends AndroidViewModel {
     private OfflineRepository offlineRepository;
     private ConnectivityManager connectivityManager;
     private SyncManager syncManager;
+    
+    // Preparação e envio de fotos em background
+    private final ExecutorService uploadExecutor = Executors.newSingleThreadExecutor();
+    private static final long PHOTO_READY_TIMEOUT_SECONDS = 30;
+    private UploadEncoder uploadEncoder;
+
+    // Monta os PickupCardModel de cada página fora da main thread
+    private final ExecutorService cardExecutor = Executors.newSingleThreadExecutor();
+    // Consulta síncrona das coletas com operação na fila (sem acessar o SQLite)
+    private final PendingPickupIndex pendingPickupIndex = PendingPickupIndex.getInstance();
+
+    // Rota observada (motorista, dia); trocada quando muda o motorista ou vira o dia
+    private final AtomicReference<Pair<String, Long>> observedRoute = new AtomicReference<>();
 
     public MainViewModel(@NonNull Application application) {
         super(application);
@@ -70,6 +95,18 @@ public class MainViewModel extends AndroidViewModel {
         offlineRepository = OfflineRepository.getInstance(application);
         connectivityManager = ConnectivityManager.getInstance(application);
         syncManager = SyncManager.getInstance(application);
+        uploadEncoder = UploadEncoder.getInstance(application);
+        
+        openPickups = PagingLiveData.cachedIn(
+            Transformations.switchMap(route, key -> Transformations.map(
+                offlineRepository.observeOpenPickupPages(key.first, key.second, CAROUSEL_PAGE_SIZE),
+                page -> PagingDataTransforms.map(page, cardExecutor,
+                    PickupCardModel::from))),
+            ViewModelKt.getViewModelScope(this));
+        LiveData<PickupDao.RouteProgress> routeProgress = Transformations.switchMap(route, key ->
+            offlineRepository.observeRouteProgress(key.first, key.second));
+        progressPercentage = Transformations.map(routeProgress, MainViewModel::progressPercentage);
+        progressSummary = Transformations.map(routeProgress, MainViewModel::progressSummary);
         
         // Registra listener para atualizar a tela após sincronização
         setupSyncListener();
@@ -84,11 +121,8 @@ public class MainViewModel extends AndroidViewModel {
             
             @Override
             public void onSyncCompleted(int syncedCount, int failedCount) {
-                if (syncedCount > 0) {
-                    android.util.Log.i("MainViewModel", "Sincronização concluída com " + syncedCount + " operações. Atualizando tela.");
-                    // Atualiza a tela após sincronização bem-sucedida
-                    fetchPickups();
-                }
+                // A tela se atualiza pela observação do cache: o sync grava o status final da coleta
+                android.util.Log.i("MainViewModel", "Sincronização concluída com " + syncedCount + " operações");
             }
             
             @Override
@@ -98,45 +132,64 @@ public class MainViewModel extends AndroidViewModel {
         });
     }
 
-    private void saveOperationOffline(Pickup pickup, String operationType, String observationDriver, String occurrenceId, String driverAttachmentUrl, Integer driverNumberPackages) {
-        // Extrair apenas o Base64 da string data:image/jpeg;base64,
-        String photoBase64 = null;
-        if (driverAttachmentUrl != null && driverAttachmentUrl.startsWith("data:image/")) {
-            int commaIndex = driverAttachmentUrl.indexOf(",");
-            if (commaIndex != -1 && commaIndex < driverAttachmentUrl.length() - 1) {
-                photoBase64 = driverAttachmentUrl.substring(commaIndex + 1);
+    private void saveOperationOffline(Pickup pickup, String operationType, String observationDriver, String occurrenceId, PhotoAttachment photo, Integer driverNumberPackages) {
+        // A foto ainda pode estar sendo codificada: aguarda fora da main thread
+        uploadExecutor.execute(() -> {
+            File photoFile = null;
+            if (photo != null) {
+                try {
+                    photoFile = photo.await(PHOTO_READY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (java.io.IOException e) {
+                    android.util.Log.e("MainViewModel", "Foto não ficou pronta: " + e.getMessage());
+                    _isLoading.postValue(false);
+                    _updateResult.postValue("Erro ao processar imagem: " + e.getMessage());
+                    return;
+                }
             }
-        }
-        
-        offlineRepository.saveOperation(
+            
+            // O repositório copia a foto para o armazenamento de anexos
+            offlineRepository.saveOperation(
                 pickup.getId(),
                 operationType,
                 observationDriver,
                 occurrenceId,
-                photoBase64,
+                photoFile,
                 driverNumberPackages,
                 new OfflineRepository.OperationSaveCallback() {
                     @Override
-                public void onSuccess(long operationId) {
-                android.util.Log.i("MainViewModel", "Operação salva offline com sucesso");
-                _isLoading.postValue(false);
-                _updateResult.postValue("Operação salva offline. Será sincronizada quando houver conexão.");
-                    
-                    // Atualizar a lista de coletas
-                    fetchPickups();
+                    public void onSuccess(long operationId) {
+                        android.util.Log.i("MainViewModel", "Operação salva offline com sucesso");
+                        discardPhoto(photo);
+                        _isLoading.postValue(false);
+                        _updateResult.postValue("Operação salva offline. Será sincronizada quando houver conexão.");
+                        
+                        // A coleta sai do carrossel pela observação das operações pendentes
+                        
+                        // Fotos pendentes são pré-comprimidas quando o aparelho estiver ocioso ou carregando
+                        if (photo != null) {
+                            syncManager.schedulePrecompression();
+                        }
+                        
+                        // Tentar sincronizar imediatamente
+                        syncManager.syncNow();
+                    }
                     
-                    // Tentar sincronizar imediatamente
-                    syncManager.syncNow();
-                }
-                
-                @Override
-                public void onError(String error) {
-                    android.util.Log.e("MainViewModel", "Erro ao salvar operação offline: " + error);
-                    _isLoading.postValue(false);
-                    _updateResult.postValue("Erro ao salvar operação offline: " + error);
+                    @Override
+                    public void onError(String error) {
+                        android.util.Log.e("MainViewModel", "Erro ao salvar operação offline: " + error);
+                        discardPhoto(photo);
+                        _isLoading.postValue(false);
+                        _updateResult.postValue("Erro ao salvar operação offline: " + error);
+                    }
                 }
-            }
-        );
+            );
+        });
+    }
+    
+    private void discardPhoto(PhotoAttachment photo) {
+        if (photo != null) {
+            photo.discard();
+        }
     }
 
     public void fetchPickups() {
@@ -156,6 +209,9 @@ public class MainViewModel extends AndroidViewModel {
                 _isLoading.postValue(false);
                 return; 
             }
+            
+            // Carrossel e progresso seguem o cache; a API só atualiza o cache
+            observeRoute(driverId, ScheduledDay.today());
 
             // CORREÇÃO: Garantir que sempre use o fuso horário do Brasil
         String today = LocalDate.now(ZoneId.of("America/Sao_Paulo"))
@@ -167,7 +223,7 @@ public class MainViewModel extends AndroidViewModel {
 
             // Tenta buscar da API primeiro
             try {
-                apiService.getPickups(driverId, today, today).enqueue(new Callback<List<Pickup>>() {
+                apiService.getPickups(driverId, today, today, null).enqueue(new Callback<List<Pickup>>() {
                     @Override
                     public void onResponse(Call<List<Pickup>> call, Response<List<Pickup>> response) {
                         try {
@@ -188,27 +244,17 @@ public class MainViewModel extends AndroidViewModel {
 
                                 // Salva as coletas no cache para uso offline
                                 try {
-                                    // PRIMEIRO: Limpa o cache do motorista para remover coletas antigas
-                                    offlineRepository.clearPickupCache(driverId, new OfflineRepository.OperationCallback() {
+                                    // Substitui a rota de hoje atomicamente, gravando só a diferença
+                                    offlineRepository.replaceCachedRoute(todayScheduledPickups, driverId, today, new OfflineRepository.PickupCacheCallback() {
                                         @Override
-                                        public void onSuccess() {
-                                            // DEPOIS: Salva as novas coletas
-                                            offlineRepository.cachePickups(todayScheduledPickups, driverId, new OfflineRepository.PickupCacheCallback() {
-                                                @Override
-                                                public void onSuccess(int count) {
-                                                    android.util.Log.d("MainViewModel", "Cache limpo e " + count + " coletas salvas");
-                                                }
-
-                                                @Override
-                                                public void onError(String error) {
-                                                    android.util.Log.e("MainViewModel", "Erro ao salvar no cache: " + error);
-                                                }
-                                            });
+                                        public void onSuccess(int count) {
+                                            android.util.Log.d("MainViewModel", "Cache sincronizado: " + count + " coletas gravadas ou removidas");
                                         }
 
                                         @Override
                                         public void onError(String error) {
-                                            android.util.Log.e("MainViewModel", "Erro ao limpar cache: " + error);
+                                            android.util.Log.e("MainViewModel", "Erro ao salvar no cache: " + error);
+                                            _error.postValue("Erro ao atualizar coletas: " + error);
                                         }
                                     });
                                 } catch (Exception e) {
@@ -217,22 +263,6 @@ public class MainViewModel extends AndroidViewModel {
                                 
                                 // Carrega e armazena ocorrências no cache quando online
                                 loadAndCacheOccurrences();
-
-                                // Filtra para mostrar apenas as pendentes no carrossel
-                                List<Pickup> pendingPickups = new java.util.ArrayList<>();
-                                for (Pickup pickup : todayScheduledPickups) {
-                                    try {
-                                        if (pickup != null && "PENDING".equalsIgnoreCase(pickup.getStatus())) {
-                                            pendingPickups.add(pickup);
-                                        }
-                                    } catch (Exception e) {
-                                        android.util.Log.w("MainViewModel", "Erro ao filtrar coleta pendente da API: " + e.getMessage());
-                                    }
-                                }
-                                _openPickups.postValue(pendingPickups);
-
-                                // Calcula o progresso com base em TODAS as coletas do dia
-                                calculateProgress(todayScheduledPickups);
                             } else {
                                 // Se a API falhar, tenta buscar do cache
                                 android.util.Log.w("MainViewModel", "Resposta da API não bem-sucedida, tentando cache");
@@ -261,8 +291,6 @@ public class MainViewModel extends AndroidViewModel {
         } catch (Exception e) {
             android.util.Log.e("MainViewModel", "Erro crítico em fetchPickups: " + e.getMessage(), e);
             _error.postValue("Erro crítico ao buscar coletas");
-            _openPickups.postValue(new java.util.ArrayList<>());
-            calculateProgress(new java.util.ArrayList<>());
             _isLoading.postValue(false);
         }
     }
@@ -281,20 +309,15 @@ public class MainViewModel extends AndroidViewModel {
                         android.util.Log.d("MainViewModel", "Coletas encontradas no cache: " + (cachedPickups != null ? cachedPickups.size() : 0));
                         
                         if (cachedPickups != null && !cachedPickups.isEmpty()) {
-                            // Filtra apenas por status PENDING - SEM filtrar por data novamente
+                            // O carrossel e o progresso já vêm da observação do cache; aqui só a mensagem
                             List<Pickup> pendingPickups = new java.util.ArrayList<>();
                             for (Pickup pickup : cachedPickups) {
                                 if (pickup != null && "PENDING".equalsIgnoreCase(pickup.getStatus())) {
                                     pendingPickups.add(pickup);
                                 }
                             }
-                            
                             android.util.Log.d("MainViewModel", "Coletas pendentes: " + pendingPickups.size());
                             
-                            // Atualiza a UI
-                            _openPickups.postValue(pendingPickups);
-                            calculateProgress(cachedPickups);
-                            
                             if (pendingPickups.isEmpty()) {
                                 _error.postValue("Nenhuma coleta pendente encontrada offline");
                             } else {
@@ -303,14 +326,10 @@ public class MainViewModel extends AndroidViewModel {
                         } else {
                             android.util.Log.w("MainViewModel", "Nenhuma coleta no cache");
                             _error.postValue("Sem conexão e nenhuma coleta armazenada");
-                            _openPickups.postValue(new java.util.ArrayList<>());
-                            calculateProgress(new java.util.ArrayList<>());
                         }
                     } catch (Exception e) {
                         android.util.Log.e("MainViewModel", "Erro ao processar cache: " + e.getMessage());
                         _error.postValue("Erro ao carregar dados offline");
-                        _openPickups.postValue(new java.util.ArrayList<>());
-                        calculateProgress(new java.util.ArrayList<>());
                     } finally {
                         _isLoading.postValue(false);
                     }
@@ -320,24 +339,22 @@ public class MainViewModel extends AndroidViewModel {
                 public void onError(String error) {
                     android.util.Log.e("MainViewModel", "Erro no cache: " + error);
                     _error.postValue("Erro ao acessar dados offline: " + error);
-                    _openPickups.postValue(new java.util.ArrayList<>());
-                    calculateProgress(new java.util.ArrayList<>());
                     _isLoading.postValue(false);
                 }
             });
         } catch (Exception e) {
             android.util.Log.e("MainViewModel", "Erro crítico no loadPickupsFromCache: " + e.getMessage());
             _error.postValue("Erro crítico ao carregar dados offline");
-            _openPickups.postValue(new java.util.ArrayList<>());
-            calculateProgress(new java.util.ArrayList<>());
             _isLoading.postValue(false);
         }
     }
 
-    // O método de finalização continua o mesmo, pois ele chama fetchPickups() no sucesso,
-    // o que já dispara a nova filtragem e cálculo de progresso.
+    // A finalização aplica a transição no cache na hora (o carrossel e o progresso seguem o Room)
+    // e só a desfaz se o servidor recusar; não há novo GET da rota (divergências ficam para a
+    // próxima atualização da tela, que regrava a linha porque o status local zera o hash)
     public void finalizePickup(String pickupId, String status) {
         _isLoading.postValue(true);
+        applyOptimisticTransition(pickupId, status);
         // Para chamadas simples, enviar apenas o status
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
@@ -346,33 +363,22 @@ public class MainViewModel extends AndroidViewModel {
         String completionDate = LocalDateTime.now(ZoneId.of("America/Sao_Paulo")).format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"));
         updates.put("completionDate", completionDate);
         
-        apiService.finalizePickup(pickupId, updates).enqueue(new Callback<Pickup>() {
+        apiService.finalizePickup(pickupId, UUID.randomUUID().toString(), updates).enqueue(new Callback<Pickup>() {
             @Override
             public void onResponse(Call<Pickup> call, Response<Pickup> response) {
                 if (response.isSuccessful()) {
                     _updateResult.postValue("Coleta atualizada com sucesso!");
-                    
-                    // Atualiza o status no cache local
-                    offlineRepository.updateCachedPickupStatus(pickupId, status, new OfflineRepository.OperationCallback() {
-                        @Override
-                        public void onSuccess() {
-                            android.util.Log.d("MainViewModel", "Status da coleta atualizado no cache: " + pickupId);
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            android.util.Log.e("MainViewModel", "Erro ao atualizar cache: " + error);
-                        }
-                    });
-                    
-                    fetchPickups(); // ESSENCIAL: Busca os dados atualizados do servidor
+                    _isLoading.postValue(false);
+                    reconcileFinalizedPickup(pickupId, status, response.body());
                 } else {
+                    revertOptimisticTransition(pickupId);
                     _updateResult.postValue("Falha ao atualizar a coleta: " + response.code());
                     _isLoading.postValue(false);
                 }
             }
             @Override
             public void onFailure(Call<Pickup> call, Throwable t) {
+                revertOptimisticTransition(pickupId);
                 _updateResult.postValue("Erro de conexão: " + t.getMessage());
                 _isLoading.postValue(false);
             }
@@ -380,7 +386,7 @@ public class MainViewModel extends AndroidViewModel {
     }
 
     // Método para finalização com detalhes do motorista
-    public void finalizePickupWithDetails(Pickup pickup, String observationDriver, String occurrenceId, String driverAttachmentUrl, Integer driverNumberPackages) {
+    public void finalizePickupWithDetails(Pickup pickup, String observationDriver, String occurrenceId, PhotoAttachment photo, Integer driverNumberPackages) {
         _isLoading.postValue(true);
         
         // Logs de debug
@@ -389,28 +395,36 @@ public class MainViewModel extends AndroidViewModel {
         android.util.Log.d("MainViewModel", "Status: COMPLETED");
         android.util.Log.d("MainViewModel", "Observação: " + observationDriver);
         android.util.Log.d("MainViewModel", "Occurrence ID: " + occurrenceId);
-        android.util.Log.d("MainViewModel", "Driver Attachment: " + (driverAttachmentUrl != null && !driverAttachmentUrl.isEmpty() ? "Presente" : "Ausente"));
+        android.util.Log.d("MainViewModel", "Driver Attachment: " + (photo != null ? "Presente" : "Ausente"));
+        
+        if (rejectIfAwaitingSync(pickup, photo)) {
+            return;
+        }
         
         // Verifica conectividade
         if (!connectivityManager.isConnected()) {
             android.util.Log.i("MainViewModel", "Sem conectividade - salvando operação offline");
-            saveOperationOffline(pickup, "COMPLETED", observationDriver, occurrenceId, driverAttachmentUrl, driverNumberPackages);
+            saveOperationOffline(pickup, "COMPLETED", observationDriver, occurrenceId, photo, driverNumberPackages);
             return;
         }
         
-        // Verificar se há uma foto (Base64) para usar multipart
-        boolean hasPhoto = driverAttachmentUrl != null && !driverAttachmentUrl.trim().isEmpty() && driverAttachmentUrl.startsWith("data:image/");
-        
-        if (hasPhoto) {
+        // Verificar se há uma foto para usar multipart
+        if (photo != null) {
             android.util.Log.d("MainViewModel", "Usando multipart/form-data para envio com foto");
-            finalizeWithMultipart(pickup, observationDriver, occurrenceId, driverAttachmentUrl, "COMPLETED", driverNumberPackages);
+            finalizeWithMultipart(pickup, observationDriver, occurrenceId, photo, "COMPLETED", driverNumberPackages);
         } else {
             android.util.Log.d("MainViewModel", "Usando JSON para envio sem foto");
             finalizeWithJson(pickup, observationDriver, occurrenceId, "COMPLETED", driverNumberPackages);
         }
     }
     
-    private void finalizeWithMultipart(Pickup pickup, String observationDriver, String occurrenceId, String driverAttachmentUrl, String status, Integer driverNumberPackages) {
+    private void finalizeWithMultipart(Pickup pickup, String observationDriver, String occurrenceId, PhotoAttachment photo, String status, Integer driverNumberPackages) {
+        applyOptimisticTransition(pickup.getId(), status);
+        // Espera da foto e codificação ficam fora da main thread
+        uploadExecutor.execute(() -> sendMultipart(pickup, observationDriver, occurrenceId, photo, status, driverNumberPackages));
+    }
+    
+    private void sendMultipart(Pickup pickup, String observationDriver, String occurrenceId, PhotoAttachment photo, String status, Integer driverNumberPackages) {
         try {
             // Criar RequestBody para campos de texto seguindo as melhores práticas
             RequestBody statusBody = RequestBody.create(status, MediaType.parse("text/plain"));
@@ -430,61 +444,18 @@ public class MainViewModel extends AndroidViewModel {
                 driverNumberPackagesBody = RequestBody.create(driverNumberPackages.toString(), MediaType.parse("text/plain"));
             }
             
-            // Processar a imagem Base64
-            MultipartBody.Part imagePart = null;
-            android.util.Log.d("MainViewModel", "=== DEBUG DETALHADO DA IMAGEM ===");
-            android.util.Log.d("MainViewModel", "driverAttachmentUrl recebido: " + (driverAttachmentUrl != null ? driverAttachmentUrl.substring(0, Math.min(100, driverAttachmentUrl.length())) + "..." : "null"));
-            android.util.Log.d("MainViewModel", "Tamanho total da string: " + (driverAttachmentUrl != null ? driverAttachmentUrl.length() : 0));
+            // Aguarda a foto preparada pelo diálogo e passa pelo codificador de upload
+            File photoFile = photo.await(PHOTO_READY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            // Versão da foto escolhida pela rede do momento (mesma regra do SyncWorker)
+            UploadRendition rendition = UploadRendition.forNetwork(connectivityManager.getNetworkQuality(),
+                connectivityManager.getNetworkSnapshot().metered);
+            UploadEncoder.EncodedUpload encodedPhoto = uploadEncoder.encode(photoFile, null, rendition);
+            RequestBody imageBody = new FileStreamingRequestBody(MediaType.parse(encodedPhoto.mimeType), encodedPhoto.file);
+            // O nome do campo deve ser "driverAttachmentUrl" conforme documentação da API
+            MultipartBody.Part imagePart = MultipartBody.Part.createFormData("driverAttachmentUrl", encodedPhoto.fileName, imageBody);
             
-            if (driverAttachmentUrl != null && driverAttachmentUrl.startsWith("data:image/")) {
-                // Extrair o Base64 da string data:image/jpeg;base64,xxxxx
-                String base64Data = driverAttachmentUrl.substring(driverAttachmentUrl.indexOf(",") + 1);
-                android.util.Log.d("MainViewModel", "Base64 extraído (primeiros 100 chars): " + base64Data.substring(0, Math.min(100, base64Data.length())) + "...");
-                android.util.Log.d("MainViewModel", "Tamanho do Base64 original: " + base64Data.length());
-                
-                // Limpar possíveis caracteres de quebra de linha ou espaços
-                base64Data = base64Data.replaceAll("\\s+", "");
-                android.util.Log.d("MainViewModel", "Tamanho do Base64 após limpeza: " + base64Data.length());
-                
-                byte[] originalImageBytes = Base64.decode(base64Data, Base64.NO_WRAP);
-                android.util.Log.d("MainViewModel", "Tamanho dos bytes decodificados: " + originalImageBytes.length);
-                
-                // Converter para Bitmap e depois para PNG
-                Bitmap bitmap = BitmapFactory.decodeByteArray(originalImageBytes, 0, originalImageBytes.length);
-                if (bitmap != null) {
-                    android.util.Log.d("MainViewModel", "Bitmap criado com sucesso: " + bitmap.getWidth() + "x" + bitmap.getHeight());
-                    
-                    // Converter bitmap para PNG
-                    ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-                    boolean compressed = bitmap.compress(Bitmap.CompressFormat.PNG, 100, pngOutputStream);
-                    byte[] pngImageBytes = pngOutputStream.toByteArray();
-                    
-                    android.util.Log.d("MainViewModel", "Conversão para PNG: " + (compressed ? "Sucesso" : "Falha"));
-                    android.util.Log.d("MainViewModel", "Tamanho original (JPEG): " + originalImageBytes.length + " bytes");
-                    android.util.Log.d("MainViewModel", "Tamanho convertido (PNG): " + pngImageBytes.length + " bytes");
-                    
-                    // Criar MultipartBody.Part com PNG seguindo as melhores práticas
-                    // Garantir que o tipo MIME está correto
-                    String mimeType = "image/png";
-                    RequestBody imageBody = RequestBody.create(pngImageBytes, MediaType.parse(mimeType));
-                    // O nome do campo deve ser "driverAttachmentUrl" conforme documentação da API
-                    String fieldName = "driverAttachmentUrl";
-                    imagePart = MultipartBody.Part.createFormData(fieldName, "driver_photo.png", imageBody);
-                    
-                    android.util.Log.d("MainViewModel", "✅ MultipartBody.Part criado para campo '" + fieldName + "' - Tamanho: " + pngImageBytes.length + " bytes");
-                    android.util.Log.d("MainViewModel", "Content-Type: image/png");
-                    android.util.Log.d("MainViewModel", "Filename: driver_photo.png");
-                    android.util.Log.d("MainViewModel", "🔄 Enviando como PNG (conversão de JPEG para PNG)");
-                    
-                    // Liberar bitmap da memória
-                    bitmap.recycle();
-                } else {
-                    android.util.Log.e("MainViewModel", "❌ Falha ao criar bitmap da imagem Base64");
-                }
-            } else {
-                android.util.Log.w("MainViewModel", "❌ Imagem não processada - driverAttachmentUrl inválido ou nulo");
-                android.util.Log.w("MainViewModel", "Valor recebido: " + driverAttachmentUrl);
-            }
+            android.util.Log.d("MainViewModel", "Foto preparada para upload (" + uploadEncoder.getMode() + ", " + rendition + "): "
+                + photoFile.length() + " -> " + encodedPhoto.file.length() + " bytes, " + encodedPhoto.mimeType);
             
             // Log detalhado antes da requisição
             android.util.Log.d("MainViewModel", "=== ENVIANDO REQUISIÇÃO MULTIPART ===");
@@ -510,6 +481,7 @@ public class MainViewModel extends AndroidViewModel {
             // Fazer a requisição multipart - só enviar campos não nulos
             Call<Pickup> call = apiService.finalizePickupWithPhoto(
                 pickup.getId(),
+                UUID.randomUUID().toString(),
                 statusBody,
                 observationBody,
                 occurrenceIdBody,
@@ -521,6 +493,8 @@ public class MainViewModel extends AndroidViewModel {
             call.enqueue(new Callback<Pickup>() {
                 @Override
                 public void onResponse(Call<Pickup> call, Response<Pickup> response) {
+                    photo.discard();
+                    releaseEncodedPhoto(encodedPhoto);
                     if (response.isSuccessful()) {
                         Pickup updatedPickup = response.body();
                         android.util.Log.d("MainViewModel", "=== RESPOSTA DA API MULTIPART ===");
@@ -531,22 +505,9 @@ public class MainViewModel extends AndroidViewModel {
                         }
                         _updateResult.postValue("Coleta finalizada com sucesso!");
                         _isLoading.postValue(false);
-                        
-                        // Atualiza o status no cache local
-                         offlineRepository.updateCachedPickupStatus(pickup.getId(), status, new OfflineRepository.OperationCallback() {
-                             @Override
-                             public void onSuccess() {
-                                 android.util.Log.d("MainViewModel", "Status da coleta atualizado no cache (multipart): " + pickup.getId());
-                             }
-
-                             @Override
-                             public void onError(String error) {
-                                 android.util.Log.e("MainViewModel", "Erro ao atualizar cache (multipart): " + error);
-                             }
-                         });
-                        
-                        fetchPickups();
+                        reconcileFinalizedPickup(pickup.getId(), status, updatedPickup);
                     } else {
+                        revertOptimisticTransition(pickup.getId());
                         android.util.Log.e("MainViewModel", "Falha ao finalizar coleta multipart: " + response.code());
                         try {
                             String errorBody = response.errorBody() != null ? response.errorBody().string() : "Sem detalhes do erro";
@@ -561,6 +522,9 @@ public class MainViewModel extends AndroidViewModel {
                 
                 @Override
                 public void onFailure(Call<Pickup> call, Throwable t) {
+                    photo.discard();
+                    releaseEncodedPhoto(encodedPhoto);
+                    revertOptimisticTransition(pickup.getId());
                     android.util.Log.e("MainViewModel", "Erro de conexão multipart: " + t.getMessage());
                     _updateResult.postValue("Erro de conexão: " + t.getMessage());
                     _isLoading.postValue(false);
@@ -569,12 +533,27 @@ public class MainViewModel extends AndroidViewModel {
                     
         } catch (Exception e) {
             android.util.Log.e("MainViewModel", "Erro ao preparar multipart: " + e.getMessage());
+            photo.discard();
+            revertOptimisticTransition(pickup.getId());
             _updateResult.postValue("Erro ao processar imagem: " + e.getMessage());
             _isLoading.postValue(false);
         }
     }
     
+    /**
+     * A foto do envio online é descartada ao fim da requisição; a versão codificada
+     * sai do cache junto, em vez de esperar a próxima pré-compressão
+     */
+    private void releaseEncodedPhoto(UploadEncoder.EncodedUpload encodedPhoto) {
+        // Com o ViewModel já encerrado a entrada fica para o pruneCache da pré-compressão
+        if (!encodedPhoto.isOriginal() && !uploadExecutor.isShutdown()) {
+            uploadExecutor.execute(() -> uploadEncoder.evict(encodedPhoto.sourceHash));
+        }
+    }
+    
     private void finalizeWithJson(Pickup pickup, String observationDriver, String occurrenceId, String status, Integer driverNumberPackages) {
+        applyOptimisticTransition(pickup.getId(), status);
+        
         // Criar Map com todos os dados do motorista
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
@@ -594,7 +573,7 @@ public class MainViewModel extends AndroidViewModel {
         }
         
         // Enviar apenas os campos que têm valores
-        apiService.finalizePickup(pickup.getId(), updates)
+        apiService.finalizePickup(pickup.getId(), UUID.randomUUID().toString(), updates)
                 .enqueue(new Callback<Pickup>() {
                     @Override
                     public void onResponse(Call<Pickup> call, Response<Pickup> response) {
@@ -602,22 +581,9 @@ public class MainViewModel extends AndroidViewModel {
                             android.util.Log.d("MainViewModel", "Coleta finalizada com sucesso usando JSON");
                             _updateResult.postValue("Coleta finalizada com sucesso!");
                             _isLoading.postValue(false);
-                            
-                            // Atualiza o status no cache local
-                             offlineRepository.updateCachedPickupStatus(pickup.getId(), status, new OfflineRepository.OperationCallback() {
-                                 @Override
-                                 public void onSuccess() {
-                                     android.util.Log.d("MainViewModel", "Status da coleta atualizado no cache (JSON): " + pickup.getId());
-                                 }
-
-                                 @Override
-                                 public void onError(String error) {
-                                     android.util.Log.e("MainViewModel", "Erro ao atualizar cache (JSON): " + error);
-                                 }
-                             });
-                            
-                            fetchPickups();
+                            reconcileFinalizedPickup(pickup.getId(), status, response.body());
                         } else {
+                            revertOptimisticTransition(pickup.getId());
                             android.util.Log.e("MainViewModel", "Falha ao finalizar coleta JSON: " + response.code());
                             try {
                                 String errorBody = response.errorBody() != null ? response.errorBody().string() : "Sem detalhes do erro";
@@ -632,6 +598,7 @@ public class MainViewModel extends AndroidViewModel {
                     
                     @Override
                     public void onFailure(Call<Pickup> call, Throwable t) {
+                        revertOptimisticTransition(pickup.getId());
                         android.util.Log.e("MainViewModel", "Erro de conexão JSON: " + t.getMessage());
                         _updateResult.postValue("Erro de conexão: " + t.getMessage());
                         _isLoading.postValue(false);
@@ -639,7 +606,7 @@ public class MainViewModel extends AndroidViewModel {
                 });
     }
 
-    public void finalizePickupWithDetailsNotCompleted(Pickup pickup, String observationDriver, String occurrenceId, String driverAttachmentUrl) {
+    public void finalizePickupWithDetailsNotCompleted(Pickup pickup, String observationDriver, String occurrenceId, PhotoAttachment photo) {
         _isLoading.postValue(true);
         
         // Logs de debug
@@ -648,24 +615,26 @@ public class MainViewModel extends AndroidViewModel {
         android.util.Log.d("MainViewModel", "Status: NOT_COMPLETED");
         android.util.Log.d("MainViewModel", "Observação: " + observationDriver);
         android.util.Log.d("MainViewModel", "Occurrence ID: " + occurrenceId);
-        android.util.Log.d("MainViewModel", "Driver Attachment: " + (driverAttachmentUrl != null && !driverAttachmentUrl.isEmpty() ? "Presente" : "Ausente"));
+        android.util.Log.d("MainViewModel", "Driver Attachment: " + (photo != null ? "Presente" : "Ausente"));
         
         // Para NOT_COMPLETED, driverNumberPackages deve ser 0 (nenhum item coletado)
         Integer driverNumberPackages = 0;
         
+        if (rejectIfAwaitingSync(pickup, photo)) {
+            return;
+        }
+        
         // Verifica conectividade
         if (!connectivityManager.isConnected()) {
             android.util.Log.i("MainViewModel", "Sem conectividade - salvando operação offline (NOT_COMPLETED)");
-            saveOperationOffline(pickup, "NOT_COMPLETED", observationDriver, occurrenceId, driverAttachmentUrl, driverNumberPackages);
+            saveOperationOffline(pickup, "NOT_COMPLETED", observationDriver, occurrenceId, photo, driverNumberPackages);
             return;
         }
         
-        // Verificar se há uma foto (Base64) para usar multipart
-        boolean hasPhoto = driverAttachmentUrl != null && !driverAttachmentUrl.trim().isEmpty() && driverAttachmentUrl.startsWith("data:image/");
-        
-        if (hasPhoto) {
+        // Verificar se há uma foto para usar multipart
+        if (photo != null) {
             android.util.Log.d("MainViewModel", "Usando multipart/form-data para envio com foto (NOT_COMPLETED)");
-            finalizeWithMultipart(pickup, observationDriver, occurrenceId, driverAttachmentUrl, "NOT_COMPLETED", driverNumberPackages);
+            finalizeWithMultipart(pickup, observationDriver, occurrenceId, photo, "NOT_COMPLETED", driverNumberPackages);
         } else {
             android.util.Log.d("MainViewModel", "Usando JSON para envio sem foto (NOT_COMPLETED)");
             finalizeWithJson(pickup, observationDriver, occurrenceId, "NOT_COMPLETED", driverNumberPackages);
@@ -673,28 +642,86 @@ public class MainViewModel extends AndroidViewModel {
     }
 
 
-    // O cálculo de progresso agora considera "COMPLETED" e "NOT_COMPLETED" como finalizadas
-    private void calculateProgress(List<Pickup> allPickups) {
-        if (allPickups == null || allPickups.isEmpty()) {
-            _progressPercentage.postValue(0);
-            _progressSummary.postValue("Nenhuma coleta para hoje");
-            return;
+    /**
+     * Recusa finalizar de novo uma coleta que já tem operação na fila
+     * (toque repetido antes de o carrossel tirar o card, ou diálogo aberto antes do salvamento offline)
+     */
+    private boolean rejectIfAwaitingSync(Pickup pickup, PhotoAttachment photo) {
+        if (!pendingPickupIndex.contains(pickup.getId())) {
+            return false;
         }
+        android.util.Log.w("MainViewModel", "Coleta " + pickup.getId() + " já tem operação aguardando sincronização");
+        discardPhoto(photo);
+        _updateResult.postValue("Coleta já finalizada - aguardando sincronização");
+        _isLoading.postValue(false);
+        return true;
+    }
 
-        int total = allPickups.size();
-        // Conta como "concluída" qualquer coleta que não esteja mais pendente
-        int concluded = 0;
-        for (Pickup pickup : allPickups) {
-            if (!"PENDING".equalsIgnoreCase(pickup.getStatus())) {
-                concluded++;
+    /**
+     * Grava o novo status na coleta em cache antes da resposta do servidor
+     * A observação do Room tira o card do carrossel e atualiza o progresso na hora
+     */
+    private void applyOptimisticTransition(String pickupId, String status) {
+        updateCachedStatus(pickupId, status, "transição local");
+    }
+
+    /**
+     * Desfaz a transição local quando o servidor recusa ou a requisição falha
+     * (o carrossel só mostra coletas PENDING, então esse é o status anterior)
+     */
+    private void revertOptimisticTransition(String pickupId) {
+        updateCachedStatus(pickupId, "PENDING", "transição desfeita");
+    }
+
+    /**
+     * Concilia com a coleta devolvida pelo servidor, sem buscar a rota de novo
+     * Só regrava o cache se o servidor registrou um status diferente do aplicado localmente
+     */
+    private void reconcileFinalizedPickup(String pickupId, String status, Pickup serverPickup) {
+        if (serverPickup != null && serverPickup.getStatus() != null
+                && !serverPickup.getStatus().equalsIgnoreCase(status)) {
+            updateCachedStatus(pickupId, serverPickup.getStatus(), "status do servidor");
+        }
+    }
+
+    private void updateCachedStatus(String pickupId, String status, String reason) {
+        offlineRepository.updateCachedPickupStatus(pickupId, status, new OfflineRepository.OperationCallback() {
+            @Override
+            public void onSuccess() {
+                android.util.Log.d("MainViewModel", "Coleta " + pickupId + " -> " + status + " no cache (" + reason + ")");
             }
+
+            @Override
+            public void onError(String error) {
+                android.util.Log.e("MainViewModel", "Erro ao atualizar cache (" + reason + "): " + error);
+            }
+        });
+    }
+
+    /**
+     * Passa a observar a rota do motorista para o dia no cache, se ainda não estiver observando
+     */
+    private void observeRoute(String driverId, long day) {
+        Pair<String, Long> key = Pair.create(driverId, day);
+        if (!key.equals(observedRoute.getAndSet(key))) {
+            route.postValue(key);
         }
+    }
 
-        int percentage = (int) (((double) concluded / total) * 100);
-        _progressPercentage.postValue(percentage);
+    // O progresso considera finalizadas as coletas que não estão mais pendentes
+    // (inclusive as finalizadas offline que aguardam envio)
+    private static int progressPercentage(PickupDao.RouteProgress progress) {
+        if (progress == null || progress.total == 0) {
+            return 0;
+        }
+        return (int) (((double) progress.concluded / progress.total) * 100);
+    }
 
-        String summary = String.format(Locale.getDefault(), "Coletas concluídas: %d de %d", concluded, total);
-        _progressSummary.postValue(summary);
+    private static String progressSummary(PickupDao.RouteProgress progress) {
+        if (progress == null || progress.total == 0) {
+            return "Nenhuma coleta para hoje";
+        }
+        return String.format(Locale.getDefault(), "Coletas concluídas: %d de %d", progress.concluded, progress.total);
     }
 
     // NOVO MÉTODO: Verifica se uma coleta está agendada para hoje
@@ -752,4 +779,11 @@ public class MainViewModel extends AndroidViewModel {
             android.util.Log.e("MainViewModel", "Erro ao fazer chamada de ocorrências: " + e.getMessage());
         }
     }
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        uploadExecutor.shutdown();
+        cardExecutor.shutdown();
+    }
 }
\ No newline at end of file
@@ -44,6 +44,9 @@ public class Pickup {
     @SerializedName("driverNumberPackages")
     private Integer driverNumberPackages;
 
+    // Hash do conteúdo em cache (não vem da API); usado pelo DiffUtil do carrossel
+    private transient String contentHash;
+
     // Getters
     public boolean isFragile() { return isFragile; }
     public String getObservation() { return observation; }
@@ -84,4 +87,8 @@ public class Pickup {
     public Integer getDriverNumberPackages() {
         return driverNumberPackages;
     }
+
+    public String getContentHash() {
+        return contentHash;
+    }
 }
\ No newline at end of file
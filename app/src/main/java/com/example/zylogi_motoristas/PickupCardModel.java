@@ -0,0 +1,116 @@
+package com.example.zylogi_motoristas;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Dados já formatados de um card do carrossel
+ * Montado uma vez por mudança de dados, fora da main thread; o bind só atribui os campos
+ */
+public final class PickupCardModel {
+
+    private static final DateTimeFormatter API_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    // Padrão só numérico: o locale não altera o resultado
+    private static final DateTimeFormatter DISPLAY_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy", Locale.ROOT);
+
+    public final Pickup pickup; // Repassada aos cliques do card
+    public final String id;
+    public final String referenceLabel;
+    public final String companyName;
+    public final String phoneLabel;
+    public final String contactLabel;
+    public final String addressText;
+    public final String dateLabel;
+    public final boolean hasObservation;
+
+    private final String contentHash;
+    private final String status;
+
+    private PickupCardModel(Pickup pickup) {
+        this.pickup = pickup;
+        this.id = pickup.getId();
+        this.contentHash = pickup.getContentHash();
+        this.status = pickup.getStatus();
+
+        if (pickup.getReferenceId() != null && !pickup.getReferenceId().isEmpty()) {
+            referenceLabel = "🆔 ID: #" + pickup.getReferenceId();
+        } else {
+            referenceLabel = "🆔 ID: Não informado";
+        }
+
+        Client client = pickup.getClient();
+        companyName = client != null ? client.getCompanyName() : null;
+        phoneLabel = client != null ? "Telefone: " + client.getPhone() : null;
+
+        ClientAddress clientAddress = pickup.getClientAddress();
+        if (clientAddress != null && clientAddress.getContactName() != null) {
+            contactLabel = "Contato: " + clientAddress.getContactName();
+        } else {
+            contactLabel = "Contato: Não informado";
+        }
+        addressText = clientAddress != null ? formatAddress(clientAddress) : null;
+
+        String scheduledDate = pickup.getScheduledDate();
+        if (scheduledDate != null && !scheduledDate.trim().isEmpty()) {
+            dateLabel = "📅 Agendado para: " + formatScheduledDate(scheduledDate);
+        } else {
+            dateLabel = "📅 Agendado para: Hoje";
+        }
+
+        hasObservation = pickup.getObservation() != null && !pickup.getObservation().trim().isEmpty();
+    }
+
+    /**
+     * Monta o card de uma coleta; chamar fora da main thread
+     */
+    public static PickupCardModel from(Pickup pickup) {
+        return new PickupCardModel(pickup);
+    }
+
+    private static String formatAddress(ClientAddress clientAddress) {
+        StringBuilder fullAddressText = new StringBuilder();
+
+        if (clientAddress.getAddress() != null) {
+            fullAddressText.append(clientAddress.getAddress());
+        }
+
+        if (clientAddress.getAddressNumber() != null) {
+            if (fullAddressText.length() > 0) fullAddressText.append(", ");
+            fullAddressText.append(clientAddress.getAddressNumber());
+        }
+
+        if (clientAddress.getNeighborhood() != null && clientAddress.getNeighborhood().getName() != null) {
+            if (fullAddressText.length() > 0) fullAddressText.append(" - ");
+            fullAddressText.append(clientAddress.getNeighborhood().getName());
+        }
+
+        if (clientAddress.getCity() != null && clientAddress.getCity().getName() != null) {
+            if (fullAddressText.length() > 0) fullAddressText.append(", ");
+            fullAddressText.append(clientAddress.getCity().getName());
+        }
+
+        return fullAddressText.toString();
+    }
+
+    // Converte yyyy-MM-dd (ignorando horário) para o formato de exibição
+    private static String formatScheduledDate(String scheduledDate) {
+        try {
+            String dateOnly = scheduledDate.substring(0, Math.min(scheduledDate.length(), 10));
+            return LocalDate.parse(dateOnly, API_DATE).format(DISPLAY_DATE);
+        } catch (Exception e) {
+            // Em caso de erro, retorna a data original
+            return scheduledDate;
+        }
+    }
+
+    /**
+     * Mesmo conteúdo exibido (usado pelo DiffUtil)
+     */
+    public boolean hasSameContent(PickupCardModel other) {
+        return contentHash != null
+            && contentHash.equals(other.contentHash)
+            && Objects.equals(status, other.status);
+    }
+}
@@ -4,15 +4,20 @@ import android.content.Context;
 import com.example.zylogi_motoristas.BuildConfig;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import okhttp3.Cache;
 import okhttp3.Interceptor;
 import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor; // Importe
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
+import java.io.File;
 import java.io.IOException;
 
 public class RetrofitClient {
+    private static final long MAX_LOGGED_BODY_BYTES = 64 * 1024;
+    private static final String HTTP_CACHE_DIRECTORY = "http_cache";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024; // 10 MB
     private static Retrofit retrofit = null;
 
     public static Retrofit getClient(Context context) {
@@ -27,6 +32,27 @@ public class RetrofitClient {
             }
         });
         loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+
+        // Para uploads (multipart ou corpos grandes) loga só os headers:
+        // no nível BODY o interceptor copiaria o arquivo inteiro para a memória
+        HttpLoggingInterceptor headersLoggingInterceptor = new HttpLoggingInterceptor(new HttpLoggingInterceptor.Logger() {
+            @Override
+            public void log(String message) {
+                android.util.Log.d("OkHttp", message);
+            }
+        });
+        headersLoggingInterceptor.setLevel(HttpLoggingInterceptor.Level.HEADERS);
+
+        Interceptor uploadAwareLoggingInterceptor = new Interceptor() {
+            @Override
+            public okhttp3.Response intercept(Chain chain) throws IOException {
+                okhttp3.RequestBody body = chain.request().body();
+                if (body instanceof MultipartBody || (body != null && body.contentLength() > MAX_LOGGED_BODY_BYTES)) {
+                    return headersLoggingInterceptor.intercept(chain);
+                }
+                return loggingInterceptor.intercept(chain);
+            }
+        };
         
         // Interceptor personalizado para logs de multipart
         Interceptor multipartInterceptor = new Interceptor() {
@@ -49,10 +75,38 @@ public class RetrofitClient {
             }
         }; // Mostra tudo: URL, headers, body
 
+        // Respostas GET com ETag/Last-Modified ficam no cache em disco, mas sempre revalidadas:
+        // a próxima chamada envia If-None-Match/If-Modified-Since e uma rota sem mudanças volta como 304
+        Interceptor revalidationInterceptor = new Interceptor() {
+            @Override
+            public okhttp3.Response intercept(Chain chain) throws IOException {
+                okhttp3.Response response = chain.proceed(chain.request());
+
+                if (response.code() == 304) {
+                    android.util.Log.d("RetrofitClient", "Sem mudanças (304), usando cache: " + chain.request().url().encodedPath());
+                    return response;
+                }
+
+                boolean hasValidator = response.header("ETag") != null || response.header("Last-Modified") != null;
+                String cacheControl = response.header("Cache-Control");
+                boolean noStore = cacheControl != null && cacheControl.contains("no-store");
+                if (!"GET".equals(chain.request().method()) || !response.isSuccessful() || !hasValidator || noStore) {
+                    return response;
+                }
+                return response.newBuilder()
+                        .header("Cache-Control", "no-cache")
+                        .removeHeader("Pragma")
+                        .build();
+            }
+        };
+
+                Context appContext = context.getApplicationContext();
                 OkHttpClient okHttpClient = new OkHttpClient.Builder()
+                        .cache(new Cache(new File(appContext.getCacheDir(), HTTP_CACHE_DIRECTORY), HTTP_CACHE_SIZE))
                         .addInterceptor(new AuthInterceptor(context))
                         .addInterceptor(multipartInterceptor)
-                        .addInterceptor(loggingInterceptor) // Adiciona o espião aqui
+                        .addInterceptor(uploadAwareLoggingInterceptor) // Adiciona o espião aqui
+                        .addNetworkInterceptor(revalidationInterceptor)
                         .build();
 
                 // Configura Gson para não incluir campos vazios ou nulos
@@ -75,4 +129,31 @@ public class RetrofitClient {
         }
         return retrofit;
     }
+
+    /**
+     * Apaga o cache HTTP (dados da rota do motorista); chamado no logout
+     * Faz E/S em disco, não chamar na main thread
+     */
+    public static void clearHttpCache() {
+        if (retrofit == null) {
+            return;
+        }
+        Cache cache = ((OkHttpClient) retrofit.callFactory()).cache();
+        if (cache != null) {
+            try {
+                cache.evictAll();
+                android.util.Log.d("RetrofitClient", "Cache HTTP apagado");
+            } catch (IOException e) {
+                android.util.Log.w("RetrofitClient", "Erro ao apagar cache HTTP", e);
+            }
+        }
+    }
+
+    /**
+     * OkHttpClient compartilhado pelo Retrofit, para chamadas fora da ApiService
+     * reaproveitarem o mesmo pool de conexões
+     */
+    public static OkHttpClient getHttpClient(Context context) {
+        return (OkHttpClient) getClient(context).callFactory();
+    }
 }
\ No newline at end of file
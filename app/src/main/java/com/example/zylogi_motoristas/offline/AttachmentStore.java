@@ -0,0 +1,272 @@
+package com.example.zylogi_motoristas.offline;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * Armazenamento de anexos (fotos) em arquivos privados do app
+ * Substitui o Base64 guardado em pending_operations: o banco mantém apenas
+ * o caminho, o tamanho e o hash do conteúdo
+ */
+public class AttachmentStore {
+
+    private static final String TAG = "AttachmentStore";
+    private static final String DIRECTORY_NAME = "attachments";
+    private static final String FILE_EXTENSION = ".jpg";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long ORPHAN_GRACE_PERIOD_MS = 60 * 60 * 1000L; // 1 hora
+
+    private static volatile AttachmentStore INSTANCE;
+
+    private final File directory;
+
+    private AttachmentStore(Context context) {
+        this.directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+    }
+
+    /**
+     * Obtém a instância singleton do armazenamento de anexos
+     */
+    public static AttachmentStore getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AttachmentStore.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AttachmentStore(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Salva os bytes de um anexo em disco
+     * O nome do arquivo é o hash do conteúdo, então a mesma foto nunca é gravada duas vezes
+     */
+    public StoredAttachment save(byte[] data) throws IOException {
+        if (data == null || data.length == 0) {
+            throw new IOException("Anexo vazio");
+        }
+
+        MessageDigest digest = newDigest();
+        digest.update(data);
+        String hash = toHex(digest.digest());
+
+        File target = fileFor(hash);
+        if (!target.exists()) {
+            File temp = createTempFile();
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(data);
+            }
+            commit(temp, target);
+        } else {
+            target.setLastModified(System.currentTimeMillis());
+        }
+
+        Log.d(TAG, "Anexo armazenado: " + target.getName() + " (" + data.length + " bytes)");
+        return new StoredAttachment(target.getName(), data.length, hash);
+    }
+
+    /**
+     * Salva o conteúdo de um stream em disco sem carregá-lo inteiro na memória
+     */
+    public StoredAttachment save(InputStream input) throws IOException {
+        MessageDigest digest = newDigest();
+        File temp = createTempFile();
+        long size = 0;
+
+        try (OutputStream out = new FileOutputStream(temp)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                size += read;
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        if (size == 0) {
+            temp.delete();
+            throw new IOException("Anexo vazio");
+        }
+
+        String hash = toHex(digest.digest());
+        File target = fileFor(hash);
+        if (target.exists()) {
+            temp.delete();
+            target.setLastModified(System.currentTimeMillis());
+        } else {
+            commit(temp, target);
+        }
+
+        Log.d(TAG, "Anexo armazenado via stream: " + target.getName() + " (" + size + " bytes)");
+        return new StoredAttachment(target.getName(), size, hash);
+    }
+
+    /**
+     * Retorna o arquivo correspondente ao caminho gravado no banco
+     */
+    public File getFile(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return new File(directory, path);
+    }
+
+    /**
+     * Verifica se o arquivo do anexo ainda existe em disco
+     */
+    public boolean exists(String path) {
+        File file = getFile(path);
+        return file != null && file.isFile();
+    }
+
+    /**
+     * Lê todo o conteúdo de um anexo
+     */
+    public byte[] readBytes(String path) throws IOException {
+        File file = getFile(path);
+        if (file == null || !file.isFile()) {
+            throw new IOException("Anexo não encontrado: " + path);
+        }
+
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            int read;
+            while (offset < data.length && (read = in.read(data, offset, data.length - offset)) != -1) {
+                offset += read;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Remove o arquivo de um anexo
+     */
+    public boolean delete(String path) {
+        File file = getFile(path);
+        if (file != null && file.exists()) {
+            boolean deleted = file.delete();
+            Log.d(TAG, "Anexo removido: " + path + " (" + deleted + ")");
+            return deleted;
+        }
+        return false;
+    }
+
+    /**
+     * Remove arquivos que não são mais referenciados por nenhuma operação
+     * Arquivos recentes são preservados, pois podem pertencer a uma operação ainda sendo salva
+     */
+    public int deleteOrphans(Set<String> referencedPaths) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        long cutoff = System.currentTimeMillis() - ORPHAN_GRACE_PERIOD_MS;
+        int removed = 0;
+        for (File file : files) {
+            if (!referencedPaths.contains(file.getName()) && file.lastModified() < cutoff && file.delete()) {
+                removed++;
+            }
+        }
+
+        if (removed > 0) {
+            Log.i(TAG, "Anexos órfãos removidos: " + removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Cria um arquivo temporário dentro do diretório de anexos
+     * (mesmo sistema de arquivos, para que o rename seja atômico)
+     */
+    File createTempFile() throws IOException {
+        ensureDirectory();
+        return File.createTempFile("attachment_", ".tmp", directory);
+    }
+
+    /**
+     * Move um arquivo temporário já completo para o nome definitivo
+     */
+    File commit(File temp, File target) throws IOException {
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Falha ao gravar anexo: " + target.getName());
+        }
+        return target;
+    }
+
+    /**
+     * Arquivo definitivo para um hash de conteúdo
+     */
+    File fileFor(String hash) {
+        return new File(directory, hash + FILE_EXTENSION);
+    }
+
+    private void ensureDirectory() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Não foi possível criar diretório de anexos");
+        }
+    }
+
+    /**
+     * Calcula o SHA-256 de um arquivo em blocos, sem carregá-lo na memória
+     */
+    public static String sha256(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Referência a um anexo gravado em disco
+     */
+    public static class StoredAttachment {
+        public final String path;
+        public final long size;
+        public final String hash;
+
+        public StoredAttachment(String path, long size, String hash) {
+            this.path = path;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+}
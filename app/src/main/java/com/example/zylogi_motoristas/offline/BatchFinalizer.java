@@ -0,0 +1,154 @@
+package com.example.zylogi_motoristas.offline;
+
+import com.example.zylogi_motoristas.ApiService;
+import com.example.zylogi_motoristas.BatchFinalizeRequest;
+import com.example.zylogi_motoristas.BatchFinalizeResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Envia as finalizações sem foto em lote, em vez de um PATCH por operação
+ * Cada item recebe seu próprio resultado, para ser removido ou reprocessado individualmente
+ *
+ * Se o servidor não conhece o endpoint de lote (404/405/501), o resultado indica
+ * isso e as operações devem seguir pelo envio individual
+ */
+public class BatchFinalizer {
+
+    public static final int MAX_BATCH_SIZE = 50;
+
+    private static final long BASE_DEADLINE_SECONDS = 30;
+    private static final long MAX_DEADLINE_SECONDS = 120;
+
+    private final ApiService apiService;
+
+    public BatchFinalizer(ApiService apiService) {
+        this.apiService = apiService;
+    }
+
+    /**
+     * Finaliza as operações em lotes de até MAX_BATCH_SIZE itens
+     * Bloqueante: deve ser chamado a partir de um Worker
+     */
+    public BatchResult finalizeAll(List<PendingOperation> operations) {
+        List<ItemOutcome> outcomes = new ArrayList<>();
+
+        for (int start = 0; start < operations.size(); start += MAX_BATCH_SIZE) {
+            List<PendingOperation> chunk = operations.subList(start, Math.min(operations.size(), start + MAX_BATCH_SIZE));
+            Response<BatchFinalizeResponse> response;
+            try {
+                response = send(chunk);
+            } catch (IOException e) {
+                String error = e instanceof InterruptedIOException
+                    ? "Prazo do lote esgotado"
+                    : "Erro de rede: " + e.getMessage();
+                addFailures(outcomes, chunk, 0, error);
+                continue;
+            }
+
+            int code = response.code();
+            if (code == 404 || code == 405 || code == 501) {
+                // O restante (tudo, se for o primeiro lote) vai pelo envio individual
+                return new BatchResult(false, outcomes, new ArrayList<>(operations.subList(start, operations.size())));
+            }
+
+            if (!response.isSuccessful() || response.body() == null || response.body().getResults() == null) {
+                addFailures(outcomes, chunk, code, "Erro HTTP no lote: " + code + ": " + response.message());
+                continue;
+            }
+
+            collectOutcomes(outcomes, chunk, response.body().getResults());
+        }
+
+        return new BatchResult(true, outcomes, new ArrayList<>());
+    }
+
+    private Response<BatchFinalizeResponse> send(List<PendingOperation> chunk) throws IOException {
+        List<BatchFinalizeRequest.Item> items = new ArrayList<>(chunk.size());
+        for (PendingOperation operation : chunk) {
+            items.add(new BatchFinalizeRequest.Item(
+                clientId(operation), operation.getPickupId(), operation.getIdempotencyKey(),
+                FinalizePayload.toUpdates(operation)));
+        }
+
+        Call<BatchFinalizeResponse> call = apiService.finalizePickupsBatch(new BatchFinalizeRequest(items));
+        call.timeout().timeout(Math.min(MAX_DEADLINE_SECONDS, BASE_DEADLINE_SECONDS + chunk.size()), TimeUnit.SECONDS);
+        return call.execute();
+    }
+
+    /**
+     * Associa cada resultado à sua operação; itens sem resposta contam como falha
+     */
+    private static void collectOutcomes(List<ItemOutcome> outcomes, List<PendingOperation> chunk,
+                                        List<BatchFinalizeResponse.ItemResult> results) {
+        Map<String, BatchFinalizeResponse.ItemResult> byClientId = new HashMap<>();
+        for (BatchFinalizeResponse.ItemResult result : results) {
+            if (result != null && result.getClientId() != null) {
+                byClientId.put(result.getClientId(), result);
+            }
+        }
+
+        for (PendingOperation operation : chunk) {
+            BatchFinalizeResponse.ItemResult result = byClientId.get(clientId(operation));
+            if (result == null) {
+                outcomes.add(new ItemOutcome(operation, false, 0, "Item sem resposta no lote"));
+            } else if (result.isSuccess()) {
+                outcomes.add(new ItemOutcome(operation, true, result.getStatus(), null));
+            } else {
+                String error = String.format("Erro HTTP: %d. Corpo: %s", result.getStatus(), result.getError());
+                outcomes.add(new ItemOutcome(operation, false, result.getStatus(), error));
+            }
+        }
+    }
+
+    private static void addFailures(List<ItemOutcome> outcomes, List<PendingOperation> chunk, int status, String error) {
+        for (PendingOperation operation : chunk) {
+            outcomes.add(new ItemOutcome(operation, false, status, error));
+        }
+    }
+
+    private static String clientId(PendingOperation operation) {
+        return String.valueOf(operation.getId());
+    }
+
+    /**
+     * Resultado do envio em lote
+     */
+    public static class BatchResult {
+        public final boolean supported; // false se o servidor não tem o endpoint de lote
+        public final List<ItemOutcome> outcomes;
+        public final List<PendingOperation> notSent; // Devem seguir pelo envio individual
+
+        BatchResult(boolean supported, List<ItemOutcome> outcomes, List<PendingOperation> notSent) {
+            this.supported = supported;
+            this.outcomes = outcomes;
+            this.notSent = notSent;
+        }
+    }
+
+    /**
+     * Resultado de uma operação dentro do lote
+     */
+    public static class ItemOutcome {
+        public final PendingOperation operation;
+        public final boolean success;
+        public final int httpStatus;
+        public final String error;
+
+        ItemOutcome(PendingOperation operation, boolean success, int httpStatus, String error) {
+            this.operation = operation;
+            this.success = success;
+            this.httpStatus = httpStatus;
+            this.error = error;
+        }
+    }
+}
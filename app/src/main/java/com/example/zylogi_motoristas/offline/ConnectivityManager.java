@@ -18,17 +18,28 @@ public class ConnectivityManager {
     private static final String TAG = "ConnectivityManager";
     private static volatile ConnectivityManager INSTANCE;
     
+    private final Context context;
     private final android.net.ConnectivityManager systemConnectivityManager;
     private final List<ConnectivityListener> listeners;
-    private boolean isConnected = false;
+    private volatile boolean isConnected = false;
+    private volatile NetworkSnapshot networkSnapshot = NetworkSnapshot.NONE;
+    private volatile NetworkQualityClassifier.Quality networkQuality = NetworkQualityClassifier.Quality.UNUSABLE;
+    private Network currentNetwork;
     private NetworkCallback networkCallback;
+    private final List<NetworkQualityListener> qualityListeners = new ArrayList<>();
     
     // Interface para listeners de conectividade
     public interface ConnectivityListener {
         void onConnectivityChanged(boolean connected);
     }
     
+    // Interface para listeners de qualidade da rede
+    public interface NetworkQualityListener {
+        void onNetworkQualityChanged(NetworkQualityClassifier.Quality quality, NetworkSnapshot snapshot);
+    }
+    
     private ConnectivityManager(Context context) {
+        this.context = context;
         systemConnectivityManager = (android.net.ConnectivityManager) 
             context.getSystemService(Context.CONNECTIVITY_SERVICE);
         listeners = new ArrayList<>();
@@ -67,6 +78,8 @@ public class ConnectivityManager {
                 if (capabilities != null) {
                     isConnected = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET) &&
                                  capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+                    networkSnapshot = toSnapshot(capabilities);
+                    networkQuality = classify(networkSnapshot);
                 }
             }
             
@@ -124,6 +137,40 @@ public class ConnectivityManager {
         return isConnected;
     }
     
+    /**
+     * Capacidades da rede ativa (banda estimada, tarifada, validada)
+     */
+    public NetworkSnapshot getNetworkSnapshot() {
+        return networkSnapshot;
+    }
+    
+    /**
+     * Qualidade atual da rede, considerando também a vazão medida nos últimos uploads
+     */
+    public NetworkQualityClassifier.Quality getNetworkQuality() {
+        return classify(networkSnapshot);
+    }
+    
+    /**
+     * Adiciona um listener para mudanças na qualidade da rede
+     */
+    public void addNetworkQualityListener(NetworkQualityListener listener) {
+        synchronized (qualityListeners) {
+            if (!qualityListeners.contains(listener)) {
+                qualityListeners.add(listener);
+            }
+        }
+    }
+    
+    /**
+     * Remove um listener de qualidade da rede
+     */
+    public void removeNetworkQualityListener(NetworkQualityListener listener) {
+        synchronized (qualityListeners) {
+            qualityListeners.remove(listener);
+        }
+    }
+    
     /**
      * Força uma verificação de conectividade
      */
@@ -148,35 +195,51 @@ public class ConnectivityManager {
     }
     
     /**
-     * Testa a conectividade fazendo uma requisição real
+     * Atualiza o retrato da rede e avisa os listeners quando a classificação muda
      */
-    public void testConnectivity(ConnectivityTestCallback callback) {
-        new Thread(() -> {
-            try {
-                // Tenta fazer uma requisição HTTP simples
-                java.net.URL url = new java.net.URL("https://www.google.com");
-                java.net.HttpURLConnection connection = (java.net.HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("HEAD");
-                connection.setConnectTimeout(5000);
-                connection.setReadTimeout(5000);
-                
-                int responseCode = connection.getResponseCode();
-                boolean success = responseCode == 200;
-                
-                Log.d(TAG, "Teste de conectividade: " + (success ? "Sucesso" : "Falha") + 
-                    " (código: " + responseCode + ")");
-                
-                if (callback != null) {
-                    callback.onTestResult(success);
-                }
-                
-            } catch (Exception e) {
-                Log.w(TAG, "Teste de conectividade falhou", e);
-                if (callback != null) {
-                    callback.onTestResult(false);
+    private void updateNetworkSnapshot(NetworkSnapshot snapshot) {
+        networkSnapshot = snapshot;
+        NetworkQualityClassifier.Quality quality = classify(snapshot);
+        if (quality == networkQuality) {
+            return;
+        }
+        networkQuality = quality;
+        Log.i(TAG, "Qualidade da rede: " + quality + " - " + snapshot);
+        
+        synchronized (qualityListeners) {
+            for (NetworkQualityListener listener : qualityListeners) {
+                try {
+                    listener.onNetworkQualityChanged(quality, snapshot);
+                } catch (Exception e) {
+                    Log.e(TAG, "Erro ao notificar listener de qualidade", e);
                 }
             }
-        }).start();
+        }
+    }
+    
+    private static NetworkQualityClassifier.Quality classify(NetworkSnapshot snapshot) {
+        return NetworkQualityClassifier.classify(snapshot,
+            ThroughputMeter.getInstance().getUpstreamKbps(System.currentTimeMillis()));
+    }
+    
+    private static NetworkSnapshot toSnapshot(NetworkCapabilities capabilities) {
+        return new NetworkSnapshot(
+            capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED),
+            !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+            capabilities.getLinkDownstreamBandwidthKbps(),
+            capabilities.getLinkUpstreamBandwidthKbps());
+    }
+    
+    /**
+     * Testa se a nossa API responde, via ReachabilityService (resultado em cache por alguns segundos)
+     */
+    public void testConnectivity(ConnectivityTestCallback callback) {
+        ReachabilityService.getInstance(context).checkReachability(reachable -> {
+            Log.d(TAG, "Teste de conectividade: " + (reachable ? "Sucesso" : "Falha"));
+            if (callback != null) {
+                callback.onTestResult(reachable);
+            }
+        });
     }
     
     /**
@@ -192,6 +255,9 @@ public class ConnectivityManager {
             synchronized (listeners) {
                 listeners.clear();
             }
+            synchronized (qualityListeners) {
+                qualityListeners.clear();
+            }
         } catch (Exception e) {
             Log.e(TAG, "Erro na limpeza do ConnectivityManager", e);
         }
@@ -206,30 +272,33 @@ public class ConnectivityManager {
         public void onAvailable(@NonNull Network network) {
             Log.i(TAG, "Rede disponível: " + network);
             
-            // Verifica se realmente tem internet
-            new Thread(() -> {
-                try {
-                    Thread.sleep(1000); // Aguarda um pouco para estabilizar
+            if (!network.equals(currentNetwork)) {
+                // A vazão medida era de outra rede
+                currentNetwork = network;
+                ThroughputMeter.getInstance().reset();
+            }
+            
+            // Verifica se realmente tem internet; o debounce fica a cargo do SyncCoordinator
+            try {
+                NetworkCapabilities capabilities = systemConnectivityManager
+                    .getNetworkCapabilities(network);
+                
+                if (capabilities != null && 
+                    capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET) &&
+                    capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
                     
-                    NetworkCapabilities capabilities = systemConnectivityManager
-                        .getNetworkCapabilities(network);
+                    boolean wasConnected = isConnected;
+                    isConnected = true;
+                    updateNetworkSnapshot(toSnapshot(capabilities));
                     
-                    if (capabilities != null && 
-                        capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET) &&
-                        capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
-                        
-                        boolean wasConnected = isConnected;
-                        isConnected = true;
-                        
-                        if (!wasConnected) {
-                             Log.i(TAG, "Conectividade restaurada");
-                             ConnectivityManager.this.notifyListeners(true);
-                         }
+                    if (!wasConnected) {
+                        Log.i(TAG, "Conectividade restaurada");
+                        ConnectivityManager.this.notifyListeners(true);
                     }
-                } catch (Exception e) {
-                    Log.e(TAG, "Erro ao processar rede disponível", e);
                 }
-            }).start();
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao processar rede disponível", e);
+            }
         }
         
         @Override
@@ -238,6 +307,7 @@ public class ConnectivityManager {
             
             boolean wasConnected = isConnected;
             isConnected = false;
+            updateNetworkSnapshot(NetworkSnapshot.NONE);
             
             if (wasConnected) {
                  Log.i(TAG, "Conectividade perdida");
@@ -252,6 +322,7 @@ public class ConnectivityManager {
             
             boolean wasConnected = isConnected;
             isConnected = hasInternet;
+            updateNetworkSnapshot(toSnapshot(capabilities));
             
             if (wasConnected != isConnected) {
                  Log.i(TAG, "Capacidades de rede mudaram. Internet: " + hasInternet);
@@ -0,0 +1,69 @@
+package com.example.zylogi_motoristas.offline;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * RequestBody que envia um arquivo direto do disco para o socket
+ * O conteúdo é copiado em blocos pelo buffer do próprio okio, então o uso de
+ * memória por upload fica limitado independentemente do tamanho da foto
+ *
+ * Também pode enviar apenas um trecho do arquivo (offset/length), usado pelo upload retomável
+ */
+public class FileStreamingRequestBody extends RequestBody {
+
+    static final long CHUNK_SIZE = 64 * 1024;
+
+    private final MediaType contentType;
+    private final File file;
+    private final long offset;
+    private final long length; // -1 = até o fim do arquivo
+
+    public FileStreamingRequestBody(MediaType contentType, File file) {
+        this(contentType, file, 0, -1);
+    }
+
+    public FileStreamingRequestBody(MediaType contentType, File file, long offset, long length) {
+        this.contentType = contentType;
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length >= 0 ? length : file.length() - offset;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        long remaining = contentLength();
+
+        // Abre o arquivo a cada escrita: o OkHttp pode repetir a requisição
+        FileInputStream input = new FileInputStream(file);
+        try (Source source = Okio.source(input)) {
+            input.getChannel().position(offset);
+            while (remaining > 0) {
+                long read = source.read(sink.getBuffer(), Math.min(CHUNK_SIZE, remaining));
+                if (read == -1) {
+                    throw new EOFException("Arquivo terminou antes do esperado: " + file.getName());
+                }
+                remaining -= read;
+                sink.emitCompleteSegments();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.zylogi_motoristas.offline;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Monta os campos de finalização de uma operação pendente
+ * Compartilhado pelo envio individual (PATCH) e pelo envio em lote
+ */
+public final class FinalizePayload {
+
+    private FinalizePayload() {
+    }
+
+    /**
+     * Campos enviados no corpo JSON da finalização, apenas os preenchidos
+     */
+    public static Map<String, Object> toUpdates(PendingOperation operation) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("status", operation.getOperationType());
+
+        // Adicionar data de finalização se disponível (convertendo para ISO 8601)
+        String completionDate = formatCompletionDate(operation.getCompletionDate());
+        if (completionDate != null) {
+            updates.put("completionDate", completionDate);
+        }
+
+        // Adicionar observação do motorista se disponível
+        if (operation.getObservationDriver() != null && !operation.getObservationDriver().trim().isEmpty()) {
+            updates.put("observationDriver", operation.getObservationDriver());
+        }
+
+        // Adicionar ID da ocorrência se disponível (só se não estiver vazio)
+        if (operation.getOccurrenceId() != null && !operation.getOccurrenceId().trim().isEmpty()) {
+            updates.put("occurrenceId", operation.getOccurrenceId());
+        }
+
+        // Adicionar número de pacotes se disponível
+        if (operation.getDriverNumberPackages() != null) {
+            updates.put("driverNumberPackages", operation.getDriverNumberPackages());
+        }
+
+        return updates;
+    }
+
+    /**
+     * Converte o timestamp salvo para ISO 8601 (UTC)
+     * Se já estiver em formato ISO, usa como está
+     */
+    public static String formatCompletionDate(String completionDate) {
+        if (completionDate == null) {
+            return null;
+        }
+        try {
+            long timestamp = Long.parseLong(completionDate);
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+            sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return sdf.format(new Date(timestamp));
+        } catch (NumberFormatException e) {
+            return completionDate;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.zylogi_motoristas.offline;
+
+/**
+ * Classifica a qualidade da rede para envio de dados
+ * Entradas: banda estimada pelo sistema (descida e subida), rede tarifada, rede validada
+ * e a vazão de envio realmente medida nos últimos uploads, que tem prioridade sobre a estimativa
+ */
+public final class NetworkQualityClassifier {
+
+    public enum Quality {
+        UNUSABLE, // sem internet validada ou vazão praticamente nula
+        POOR,     // 2G / EDGE: atualizações de status passam, fotos travam a fila
+        MODERATE, // 3G ou 4G fraco
+        GOOD
+    }
+
+    // Limites de subida em kbps (uploads são o gargalo)
+    static final long UNUSABLE_UPSTREAM_KBPS = 16;
+    static final long POOR_UPSTREAM_KBPS = 150;
+    static final long GOOD_UPSTREAM_KBPS = 1000;
+    // Descida muito baixa indica rede ruim mesmo com estimativa de subida otimista
+    static final long POOR_DOWNSTREAM_KBPS = 100;
+
+    private NetworkQualityClassifier() {
+    }
+
+    /**
+     * @param measuredUpstreamKbps vazão medida recentemente ou {@link ThroughputMeter#UNKNOWN}
+     */
+    public static Quality classify(NetworkSnapshot snapshot, long measuredUpstreamKbps) {
+        if (snapshot == null || !snapshot.validated) {
+            return Quality.UNUSABLE;
+        }
+
+        boolean poorDownstream = snapshot.downstreamKbps != NetworkSnapshot.UNKNOWN_BANDWIDTH
+            && snapshot.downstreamKbps < POOR_DOWNSTREAM_KBPS;
+
+        long upstream;
+        if (measuredUpstreamKbps != ThroughputMeter.UNKNOWN) {
+            upstream = measuredUpstreamKbps;
+        } else if (snapshot.upstreamKbps != NetworkSnapshot.UNKNOWN_BANDWIDTH) {
+            upstream = snapshot.upstreamKbps;
+        } else {
+            // Sem estimativa nem medição: não bloqueia, assume rede intermediária
+            return poorDownstream ? Quality.POOR : Quality.MODERATE;
+        }
+
+        if (upstream < UNUSABLE_UPSTREAM_KBPS) {
+            return Quality.UNUSABLE;
+        }
+        if (upstream < POOR_UPSTREAM_KBPS || poorDownstream) {
+            return Quality.POOR;
+        }
+        return upstream >= GOOD_UPSTREAM_KBPS ? Quality.GOOD : Quality.MODERATE;
+    }
+}
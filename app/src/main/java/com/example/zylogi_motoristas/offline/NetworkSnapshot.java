@@ -0,0 +1,35 @@
+package com.example.zylogi_motoristas.offline;
+
+/**
+ * Retrato das capacidades da rede ativa, extraído de NetworkCapabilities
+ * Sem dependência do Android para poder ser usado pelo classificador em testes de JVM
+ */
+public final class NetworkSnapshot {
+
+    public static final int UNKNOWN_BANDWIDTH = 0;
+
+    /** Nenhuma rede ativa */
+    public static final NetworkSnapshot NONE = new NetworkSnapshot(false, true, UNKNOWN_BANDWIDTH, UNKNOWN_BANDWIDTH);
+
+    public final boolean validated;
+    public final boolean metered;
+    public final int downstreamKbps; // estimativa do sistema; 0 = desconhecida
+    public final int upstreamKbps;   // estimativa do sistema; 0 = desconhecida
+
+    public NetworkSnapshot(boolean validated, boolean metered, int downstreamKbps, int upstreamKbps) {
+        this.validated = validated;
+        this.metered = metered;
+        this.downstreamKbps = Math.max(UNKNOWN_BANDWIDTH, downstreamKbps);
+        this.upstreamKbps = Math.max(UNKNOWN_BANDWIDTH, upstreamKbps);
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkSnapshot{" +
+                "validated=" + validated +
+                ", metered=" + metered +
+                ", downstreamKbps=" + downstreamKbps +
+                ", upstreamKbps=" + upstreamKbps +
+                '}';
+    }
+}
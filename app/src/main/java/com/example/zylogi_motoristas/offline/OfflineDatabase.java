@@ -1,18 +1,22 @@
 package com.example.zylogi_motoristas.offline;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.util.Base64;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Banco de dados Room para armazenamento offline
  */
 @Database(
     entities = {PendingOperation.class, PickupEntity.class, OccurrenceEntity.class},
-    version = 3,
+    version = 10,
     exportSchema = false
 )
 public abstract class OfflineDatabase extends RoomDatabase {
@@ -20,6 +24,9 @@ public abstract class OfflineDatabase extends RoomDatabase {
     private static final String DATABASE_NAME = "offline_operations.db";
     private static volatile OfflineDatabase INSTANCE;
     
+    // Erro gravado nas operações cuja foto em Base64 não pôde ser migrada para arquivo
+    static final String CORRUPTED_ATTACHMENT_ERROR = "anexo corrompido na migração";
+    
     /**
      * Obtém o DAO para operações pendentes
      */
@@ -48,7 +55,9 @@ public abstract class OfflineDatabase extends RoomDatabase {
                             DATABASE_NAME
                     )
                     .addCallback(roomCallback)
-                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, createMigration3To4(context.getApplicationContext()),
+                            MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8,
+                            MIGRATION_8_9, MIGRATION_9_10)
                     .build();
                 }
             }
@@ -131,6 +140,235 @@ public abstract class OfflineDatabase extends RoomDatabase {
         }
     };
     
+    /**
+     * Migração da versão 3 para 4 - Move as fotos em Base64 de pending_operations
+     * para arquivos no AttachmentStore, mantendo na tabela apenas caminho, tamanho e hash
+     * Operações cuja foto não decodifica ficam como falha (sem novas tentativas) em vez de sair sem comprovante
+     */
+    static Migration createMigration3To4(Context context) {
+        return new Migration(3, 4) {
+            @Override
+            public void migrate(SupportSQLiteDatabase database) {
+                database.execSQL("CREATE TABLE IF NOT EXISTS pending_operations_new (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                        "pickup_id TEXT, " +
+                        "operation_type TEXT, " +
+                        "observation_driver TEXT, " +
+                        "occurrence_id TEXT, " +
+                        "attachment_path TEXT, " +
+                        "attachment_size INTEGER NOT NULL DEFAULT 0, " +
+                        "attachment_hash TEXT, " +
+                        "driver_number_packages INTEGER, " +
+                        "completion_date TEXT, " +
+                        "created_at INTEGER NOT NULL, " +
+                        "retry_count INTEGER NOT NULL, " +
+                        "last_error TEXT" +
+                        ")");
+                
+                database.execSQL("INSERT INTO pending_operations_new (" +
+                        "id, pickup_id, operation_type, observation_driver, occurrence_id, " +
+                        "driver_number_packages, completion_date, created_at, retry_count, last_error) " +
+                        "SELECT id, pickup_id, operation_type, observation_driver, occurrence_id, " +
+                        "driver_number_packages, completion_date, created_at, retry_count, last_error " +
+                        "FROM pending_operations");
+                
+                // Move cada foto para arquivo, lendo a coluna em partes para não estourar o CursorWindow
+                AttachmentStore store = AttachmentStore.getInstance(context);
+                Cursor cursor = database.query("SELECT id, LENGTH(driver_attachment_base64) FROM pending_operations " +
+                        "WHERE driver_attachment_base64 IS NOT NULL AND driver_attachment_base64 != ''");
+                int moved = 0;
+                int corrupted = 0;
+                try {
+                    while (cursor.moveToNext()) {
+                        long id = cursor.getLong(0);
+                        long length = cursor.getLong(1);
+                        try (InputStream input = new Base64ColumnInputStream(database, id, length)) {
+                            AttachmentStore.StoredAttachment attachment = store.save(input);
+                            database.execSQL("UPDATE pending_operations_new SET attachment_path = ?, " +
+                                    "attachment_size = ?, attachment_hash = ? WHERE id = ?",
+                                    new Object[]{attachment.path, attachment.size, attachment.hash, id});
+                            moved++;
+                        } catch (IOException | IllegalArgumentException e) {
+                            android.util.Log.e("OfflineDatabase", "Erro ao migrar foto da operação " + id, e);
+                            // Sem a foto a operação não pode ser enviada: fica como falha, visível na lista de pendências
+                            database.execSQL("UPDATE pending_operations_new SET retry_count = ?, last_error = ? WHERE id = ?",
+                                    new Object[]{RetryPolicy.MAX_ATTEMPTS, CORRUPTED_ATTACHMENT_ERROR, id});
+                            corrupted++;
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+                
+                database.execSQL("DROP TABLE pending_operations");
+                database.execSQL("ALTER TABLE pending_operations_new RENAME TO pending_operations");
+                
+                android.util.Log.i("OfflineDatabase", "Migração 3->4: " + moved + " fotos movidas para arquivos, "
+                        + corrupted + " operações com foto corrompida marcadas como falha");
+            }
+        };
+    }
+    
+    /**
+     * Migração da versão 4 para 5 - Progresso do upload retomável das fotos
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN upload_id TEXT");
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN upload_offset INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN upload_length INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    /**
+     * Migração da versão 5 para 6 - Agendamento de retentativas por operação
+     * Operações que já esgotaram as tentativas entram estacionadas
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN next_attempt_at INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN last_http_status INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN parked INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE pending_operations SET parked = 1 WHERE retry_count >= " + RetryPolicy.MAX_ATTEMPTS);
+        }
+    };
+    
+    /**
+     * Migração da versão 6 para 7 - Chave de idempotência por operação
+     * Operações já existentes recebem uma chave aleatória de 128 bits
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN idempotency_key TEXT");
+            database.execSQL("UPDATE pending_operations SET idempotency_key = lower(hex(randomblob(16))) WHERE idempotency_key IS NULL");
+        }
+    };
+    
+    /**
+     * Migração da versão 7 para 8 - Reserva (lease) das operações pelo SyncWorker
+     * Operações existentes começam livres
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN leased_by TEXT");
+            database.execSQL("ALTER TABLE pending_operations ADD COLUMN lease_until INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    /**
+     * Migração da versão 8 para 9 - Hash de conteúdo das coletas em cache
+     * Linhas existentes ficam sem hash e são regravadas na primeira atualização
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE cached_pickups ADD COLUMN content_hash TEXT");
+        }
+    };
+    
+    /**
+     * Migração da versão 9 para 10 - Chave de dia indexada em cached_pickups
+     * scheduled_day é o epoch-day dos 10 primeiros caracteres de scheduled_date (-1 = sem data);
+     * substitui os filtros LIKE por prefixo, que não usam índice
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE cached_pickups ADD COLUMN scheduled_day INTEGER NOT NULL DEFAULT -1");
+            database.execSQL("UPDATE cached_pickups SET scheduled_day = " +
+                    "CAST(julianday(substr(scheduled_date, 1, 10)) - 2440587.5 AS INTEGER) " +
+                    "WHERE julianday(substr(scheduled_date, 1, 10)) IS NOT NULL");
+            
+            // Índices de coluna única criados na migração 1->2; o composto cobre driver_id como prefixo
+            database.execSQL("DROP INDEX IF EXISTS index_cached_pickups_driver_id");
+            database.execSQL("DROP INDEX IF EXISTS index_cached_pickups_scheduled_date");
+            database.execSQL("DROP INDEX IF EXISTS index_cached_pickups_status");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_cached_pickups_driver_id_scheduled_day_status " +
+                    "ON cached_pickups(driver_id, scheduled_day, status)");
+        }
+    };
+    
+    /**
+     * Lê a coluna driver_attachment_base64 em blocos via substr() e decodifica sob demanda
+     * Usado apenas pela migração 3->4
+     */
+    private static class Base64ColumnInputStream extends InputStream {
+        
+        private static final int CHUNK_CHARS = 256 * 1024; // múltiplo de 4
+        
+        private final SupportSQLiteDatabase database;
+        private final long id;
+        private final long length;
+        private long position = 1; // substr() é 1-based
+        private String carry = "";
+        private byte[] current = new byte[0];
+        private int index = 0;
+        
+        Base64ColumnInputStream(SupportSQLiteDatabase database, long id, long length) {
+            this.database = database;
+            this.id = id;
+            this.length = length;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current[index++] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(count, current.length - index);
+            System.arraycopy(current, index, buffer, offset, n);
+            index += n;
+            return n;
+        }
+        
+        private boolean fill() {
+            while (index >= current.length) {
+                if (position > length) {
+                    return false;
+                }
+                
+                String chunk;
+                Cursor cursor = database.query("SELECT substr(driver_attachment_base64, ?, ?) FROM pending_operations WHERE id = ?",
+                        new Object[]{position, CHUNK_CHARS, id});
+                try {
+                    chunk = cursor.moveToFirst() ? cursor.getString(0) : null;
+                } finally {
+                    cursor.close();
+                }
+                if (chunk == null) {
+                    return false;
+                }
+                
+                boolean first = position == 1;
+                position += CHUNK_CHARS;
+                
+                String text = carry + chunk.replaceAll("\\s+", "");
+                if (first && text.startsWith("data:image/")) {
+                    text = text.substring(text.indexOf(',') + 1);
+                }
+                
+                // Decodifica apenas blocos completos de 4 caracteres, exceto no último pedaço
+                int usable = position > length ? text.length() : text.length() - (text.length() % 4);
+                current = Base64.decode(text.substring(0, usable), Base64.DEFAULT);
+                carry = text.substring(usable);
+                index = 0;
+            }
+            return true;
+        }
+    }
+    
     /**
      * Limpa a instância do banco (útil para testes)
      */
@@ -2,11 +2,22 @@ package com.example.zylogi_motoristas.offline;
 
 import android.content.Context;
 import android.util.Log;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
 import com.example.zylogi_motoristas.Pickup;
 import com.example.zylogi_motoristas.Occurrence;
+import com.example.zylogi_motoristas.photo.UploadEncoder;
 
 /**
  * Repositório para gerenciar operações offline
@@ -17,17 +28,25 @@ public class OfflineRepository {
     private static final String TAG = "OfflineRepository";
     private static volatile OfflineRepository INSTANCE;
     
+    private final OfflineDatabase database;
     private final PendingOperationDao dao;
     private final PickupDao pickupDao;
     private final OccurrenceDao occurrenceDao;
+    private final AttachmentStore attachmentStore;
+    private final UploadEncoder uploadEncoder;
+    private final PendingPickupIndex pendingPickupIndex;
     private final ExecutorService executor;
     
     private OfflineRepository(Context context) {
-        OfflineDatabase database = OfflineDatabase.getInstance(context);
+        database = OfflineDatabase.getInstance(context);
         dao = database.pendingOperationDao();
         pickupDao = database.pickupDao();
         occurrenceDao = database.occurrenceDao();
+        attachmentStore = AttachmentStore.getInstance(context);
+        uploadEncoder = UploadEncoder.getInstance(context);
+        pendingPickupIndex = PendingPickupIndex.getInstance();
         executor = Executors.newFixedThreadPool(2);
+        executor.execute(this::reloadPendingPickupIndex);
     }
     
     /**
@@ -49,7 +68,7 @@ public class OfflineRepository {
      */
     public void saveOfflineOperation(String pickupId, String operationType, 
                                    String observationDriver, String occurrenceId,
-                                   String driverAttachmentBase64, Integer driverNumberPackages,
+                                   File photoFile, Integer driverNumberPackages,
                                    String completionDate, OperationSaveCallback callback) {
         
         executor.execute(() -> {
@@ -63,17 +82,22 @@ public class OfflineRepository {
                     return;
                 }
                 
-                // Comprime a imagem se necessário
-                String compressedImage = compressImageIfNeeded(driverAttachmentBase64);
-                
                 // Cria a operação
                 PendingOperation operation = new PendingOperation(
                     pickupId, operationType, observationDriver, occurrenceId,
-                    compressedImage, driverNumberPackages, completionDate
+                    driverNumberPackages, completionDate
                 );
                 
+                // Copia a foto para o armazenamento de anexos (o banco guarda só a referência)
+                if (photoFile != null) {
+                    try (InputStream input = new FileInputStream(photoFile)) {
+                        operation.setAttachment(attachmentStore.save(input));
+                    }
+                }
+                
                 // Salva no banco
                 long id = dao.insert(operation);
+                pendingPickupIndex.add(pickupId);
                 
                 Log.i(TAG, String.format("Operação salva offline - ID: %d, Pickup: %s, Tipo: %s", 
                     id, pickupId, operationType));
@@ -96,10 +120,10 @@ public class OfflineRepository {
      */
     public void saveOperation(String pickupId, String operationType, 
                             String observationDriver, String occurrenceId,
-                            String driverAttachmentBase64, Integer driverNumberPackages,
+                            File photoFile, Integer driverNumberPackages,
                             OperationSaveCallback callback) {
         saveOfflineOperation(pickupId, operationType, observationDriver, occurrenceId,
-                           driverAttachmentBase64, driverNumberPackages, 
+                           photoFile, driverNumberPackages, 
                            String.valueOf(System.currentTimeMillis()), callback);
     }
     
@@ -151,7 +175,7 @@ public class OfflineRepository {
     public void removeOperation(int operationId, OperationCallback callback) {
         executor.execute(() -> {
             try {
-                dao.deleteById(operationId);
+                deleteSyncedOperation(operationId);
                 Log.i(TAG, "Operação removida após sincronização: " + operationId);
                 
                 if (callback != null) {
@@ -166,6 +190,100 @@ public class OfflineRepository {
         });
     }
     
+    /**
+     * Remove a operação enviada e grava o status final na coleta em cache, na mesma transação
+     * Quem observa o cache nunca vê a coleta voltar a PENDING entre os dois passos
+     * Arquivo, cache do codificador e índice só são tocados depois que a transação termina
+     */
+    private void deleteSyncedOperation(int operationId) {
+        RemovedOperation removed = database.runInTransaction(() -> {
+            PendingOperation operation = dao.getOperationById(operationId);
+            if (operation != null) {
+                pickupDao.updatePickupStatus(operation.getPickupId(), operation.getOperationType(), System.currentTimeMillis());
+            }
+            return deleteOperationRow(operationId);
+        });
+        releaseRemovedOperation(removed);
+    }
+    
+    /**
+     * Remove a operação e apaga o arquivo do anexo se nenhuma outra operação o referencia
+     */
+    private void deleteOperationAndAttachment(int operationId) {
+        releaseRemovedOperation(deleteOperationRow(operationId));
+    }
+    
+    /**
+     * Remove apenas a linha da operação e coleta o que precisa ser liberado fora do banco
+     * Retorna null se a operação não existia
+     */
+    private RemovedOperation deleteOperationRow(int operationId) {
+        PendingOperation operation = dao.getOperationById(operationId);
+        dao.deleteById(operationId);
+        if (operation == null) {
+            return null;
+        }
+        boolean orphanAttachment = operation.hasAttachment()
+            && dao.countOperationsWithAttachment(operation.getAttachmentPath()) == 0;
+        return new RemovedOperation(operation.getPickupId(),
+            orphanAttachment ? operation.getAttachmentPath() : null,
+            orphanAttachment ? operation.getAttachmentHash() : null);
+    }
+    
+    /**
+     * Atualiza o índice de pendentes e apaga o anexo órfão de uma operação já removida do banco
+     */
+    private void releaseRemovedOperation(RemovedOperation removed) {
+        if (removed == null) {
+            return;
+        }
+        pendingPickupIndex.remove(removed.pickupId);
+        if (removed.attachmentPath != null) {
+            attachmentStore.delete(removed.attachmentPath);
+            uploadEncoder.evict(removed.attachmentHash);
+        }
+    }
+    
+    /**
+     * Dados da operação removida necessários para liberar recursos fora da transação
+     */
+    private static final class RemovedOperation {
+        final String pickupId;
+        final String attachmentPath;
+        final String attachmentHash;
+        
+        RemovedOperation(String pickupId, String attachmentPath, String attachmentHash) {
+            this.pickupId = pickupId;
+            this.attachmentPath = attachmentPath;
+            this.attachmentHash = attachmentHash;
+        }
+    }
+    
+    /**
+     * Recarrega do banco o conjunto de coletas com operação pendente
+     * Usado na abertura e após remoções em lote; refaz a leitura se houve alteração no meio
+     */
+    private void reloadPendingPickupIndex() {
+        try {
+            for (int attempt = 0; attempt < 3; attempt++) {
+                long version = pendingPickupIndex.getVersion();
+                if (pendingPickupIndex.load(dao.getPendingPickupIds(), version)) {
+                    Log.d(TAG, "Índice de coletas pendentes carregado: " + pendingPickupIndex.getSnapshot().size());
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao carregar índice de coletas pendentes", e);
+        }
+    }
+    
+    /**
+     * Retorna o armazenamento de anexos usado pelas operações pendentes
+     */
+    public AttachmentStore getAttachmentStore() {
+        return attachmentStore;
+    }
+    
     /**
      * Incrementa o contador de tentativas de uma operação
      */
@@ -220,6 +338,81 @@ public class OfflineRepository {
         });
     }
     
+    // ========== MÉTODOS SÍNCRONOS PARA WORKERS ==========
+    // Workers já executam em background; estes métodos rodam na thread de quem chama
+
+    /**
+     * Reserva as operações cujo backoff já venceu para uma execução do worker (síncrono)
+     * Operações reservadas por outra execução ficam de fora até a reserva expirar
+     */
+    public List<PendingOperation> claimDueOperationsSync(String owner, long now, long leaseMillis) {
+        List<PendingOperation> operations = dao.claimDueOperations(owner, now, now + leaseMillis);
+        Log.i(TAG, "Operações reservadas para envio: " + operations.size());
+        return operations;
+    }
+
+    /**
+     * Estende a reserva de uma operação; false se outra execução a retomou (síncrono)
+     */
+    public boolean renewLeaseSync(int operationId, String owner, long leaseMillis) {
+        return dao.renewLease(operationId, owner, System.currentTimeMillis() + leaseMillis) > 0;
+    }
+
+    /**
+     * Estende todas as reservas de uma execução (síncrono)
+     */
+    public void renewLeasesSync(String owner, long leaseMillis) {
+        dao.renewLeases(owner, System.currentTimeMillis() + leaseMillis);
+    }
+
+    /**
+     * Libera as reservas restantes de uma execução (síncrono)
+     */
+    public void releaseLeasesSync(String owner) {
+        int released = dao.releaseLeases(owner);
+        Log.d(TAG, "Reservas liberadas: " + released);
+    }
+
+    /**
+     * Próximo horário em que alguma operação volta a ficar disponível, ou null (síncrono)
+     */
+    public Long getNextAttemptAtSync() {
+        return dao.getNextAttemptAt();
+    }
+
+    /**
+     * Remove uma operação após sincronização bem-sucedida (síncrono)
+     */
+    public void removeOperationSync(int operationId) {
+        deleteSyncedOperation(operationId);
+        Log.i(TAG, "Operação removida após sincronização: " + operationId);
+    }
+
+    /**
+     * Registra uma falha de sincronização com o próximo passo decidido pela RetryPolicy (síncrono)
+     */
+    public void recordSyncFailureSync(int operationId, String error, int httpStatus, RetryPolicy.Schedule schedule) {
+        dao.recordFailure(operationId, error, httpStatus, schedule.nextAttemptAt, schedule.parked);
+        Log.w(TAG, String.format("Falha registrada - ID: %d, HTTP: %d, Estacionada: %s, Erro: %s",
+            operationId, httpStatus, schedule.parked, error));
+    }
+
+    /**
+     * Pausa a operação até um novo login (síncrono)
+     */
+    public void pauseForAuthSync(int operationId, String error, int httpStatus) {
+        dao.pauseForAuth(operationId, error, httpStatus);
+        Log.w(TAG, String.format("Operação pausada até novo login - ID: %d, HTTP: %d", operationId, httpStatus));
+    }
+
+    /**
+     * Grava o offset confirmado do upload retomável (síncrono)
+     */
+    public void saveUploadProgressSync(int operationId, String uploadId, long offset, long length) {
+        dao.updateUploadProgress(operationId, uploadId, offset, length);
+        Log.d(TAG, String.format("Progresso do upload - ID: %d, %d/%d bytes", operationId, offset, length));
+    }
+
     /**
      * Obtém o número de operações pendentes
      */
@@ -239,6 +432,13 @@ public class OfflineRepository {
         });
     }
     
+    /**
+     * Observa o número de operações pendentes (atualiza sozinho a cada escrita)
+     */
+    public LiveData<Integer> observePendingOperationsCount() {
+        return dao.observePendingOperationsCount();
+    }
+    
     /**
      * Verifica se existe operação pendente para um pickup
      */
@@ -258,91 +458,6 @@ public class OfflineRepository {
         });
     }
     
-    /**
-     * Comprime a imagem Base64 se for muito grande
-     */
-    private String compressImageIfNeeded(String base64Image) {
-        if (base64Image == null || base64Image.length() < 500000) { // Menos de ~500KB
-            return base64Image;
-        }
-        
-        Log.w(TAG, "Imagem grande detectada: " + base64Image.length() + " caracteres");
-        return compressImageBase64(base64Image);
-    }
-    
-    // Compressão de imagem para economizar espaço no banco offline
-    private String compressImageBase64(String base64Image) {
-        if (base64Image == null || base64Image.trim().isEmpty()) {
-            return base64Image;
-        }
-        
-        try {
-            // Decodificar Base64 para bitmap
-            byte[] imageBytes = android.util.Base64.decode(base64Image, android.util.Base64.DEFAULT);
-            android.graphics.Bitmap originalBitmap = android.graphics.BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
-            
-            if (originalBitmap == null) {
-                android.util.Log.w("OfflineRepository", "Falha ao decodificar imagem para compressão");
-                return base64Image;
-            }
-            
-            // Calcular novo tamanho (máximo 1024px na maior dimensão)
-            int maxDimension = 1024;
-            int width = originalBitmap.getWidth();
-            int height = originalBitmap.getHeight();
-            
-            float scale = Math.min((float) maxDimension / width, (float) maxDimension / height);
-            
-            if (scale >= 1.0f) {
-                // Imagem já é pequena, apenas recomprimir com qualidade menor
-                return compressBitmapToBase64(originalBitmap, 70);
-            }
-            
-            // Redimensionar
-            int newWidth = Math.round(width * scale);
-            int newHeight = Math.round(height * scale);
-            
-            android.graphics.Bitmap resizedBitmap = android.graphics.Bitmap.createScaledBitmap(
-                originalBitmap, newWidth, newHeight, true);
-            
-            // Comprimir com qualidade 70%
-            String compressedBase64 = compressBitmapToBase64(resizedBitmap, 70);
-            
-            // Limpar recursos
-            if (!originalBitmap.isRecycled()) {
-                originalBitmap.recycle();
-            }
-            if (!resizedBitmap.isRecycled()) {
-                resizedBitmap.recycle();
-            }
-            
-            android.util.Log.d("OfflineRepository", 
-                String.format("Imagem comprimida: %d -> %d bytes (%.1f%% redução)",
-                    base64Image.length(), compressedBase64.length(),
-                    (1.0f - (float)compressedBase64.length() / base64Image.length()) * 100));
-            
-            return compressedBase64;
-            
-        } catch (Exception e) {
-            android.util.Log.e("OfflineRepository", "Erro na compressão de imagem: " + e.getMessage());
-            return base64Image; // Retorna original em caso de erro
-        }
-    }
-    
-    private String compressBitmapToBase64(android.graphics.Bitmap bitmap, int quality) {
-        java.io.ByteArrayOutputStream outputStream = new java.io.ByteArrayOutputStream();
-        bitmap.compress(android.graphics.Bitmap.CompressFormat.JPEG, quality, outputStream);
-        byte[] compressedBytes = outputStream.toByteArray();
-        
-        try {
-            outputStream.close();
-        } catch (java.io.IOException e) {
-            android.util.Log.w("OfflineRepository", "Erro ao fechar stream: " + e.getMessage());
-        }
-        
-        return android.util.Base64.encodeToString(compressedBytes, android.util.Base64.NO_WRAP);
-    }
-    
     /**
      * Executa limpeza de dados antigos
      */
@@ -350,8 +465,11 @@ public class OfflineRepository {
         executor.execute(() -> {
             long cutoffTime = System.currentTimeMillis() - (7 * 24 * 60 * 60 * 1000L); // 7 dias
             dao.cleanupOldFailedOperations(cutoffTime);
+            reloadPendingPickupIndex();
             // Limpa também coletas antigas do cache
             pickupDao.deleteOldPickups(cutoffTime);
+            // Remove fotos de operações que não existem mais
+            attachmentStore.deleteOrphans(new java.util.HashSet<>(dao.getReferencedAttachmentPaths()));
         });
     }
     
@@ -364,8 +482,11 @@ public class OfflineRepository {
             try {
                 long cutoffTime = System.currentTimeMillis() - (7 * 24 * 60 * 60 * 1000L); // 7 dias
                 dao.cleanupOldFailedOperations(cutoffTime);
+                reloadPendingPickupIndex();
                 // Limpa também coletas antigas do cache
                 pickupDao.deleteOldPickups(cutoffTime);
+                // Remove fotos de operações que não existem mais
+                attachmentStore.deleteOrphans(new java.util.HashSet<>(dao.getReferencedAttachmentPaths()));
                 Log.i(TAG, "Manutenção do banco de dados concluída");
                 
                 if (callback != null) {
@@ -401,6 +522,50 @@ public class OfflineRepository {
         });
     }
     
+    /**
+     * Libera o backoff das operações que falharam por falta de rede
+     * Usado quando a conectividade volta; operações estacionadas continuam estacionadas
+     */
+    public void clearNetworkBackoff(OperationCallback callback) {
+        executor.execute(() -> {
+            try {
+                int cleared = dao.clearNetworkBackoff();
+                Log.d(TAG, cleared + " operações liberadas do backoff de rede");
+                
+                if (callback != null) {
+                    callback.onSuccess();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao liberar backoff de rede", e);
+                if (callback != null) {
+                    callback.onError(e.getMessage());
+                }
+            }
+        });
+    }
+    
+    /**
+     * Libera as operações pausadas por sessão expirada
+     * Usado após um novo login
+     */
+    public void resumeAuthPausedOperations(OperationCallback callback) {
+        executor.execute(() -> {
+            try {
+                int resumed = dao.resumeAuthPausedOperations();
+                Log.i(TAG, resumed + " operações liberadas após novo login");
+                
+                if (callback != null) {
+                    callback.onSuccess();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao liberar operações pausadas por sessão", e);
+                if (callback != null) {
+                    callback.onError(e.getMessage());
+                }
+            }
+        });
+    }
+    
     /**
      * Reseta uma operação específica para permitir nova tentativa
      */
@@ -449,7 +614,7 @@ public class OfflineRepository {
     public void deleteOperationById(int operationId, OperationCallback callback) {
         executor.execute(() -> {
             try {
-                dao.deleteById(operationId);
+                deleteOperationAndAttachment(operationId);
                 Log.i(TAG, "Operação " + operationId + " removida com sucesso");
                 
                 if (callback != null) {
@@ -467,36 +632,28 @@ public class OfflineRepository {
     // ==================== MÉTODOS DE CACHE DE COLETAS ====================
     
     /**
-     * Salva coletas no cache local
+     * Salva coletas no cache local, sem remover as que não vieram na lista
      */
     public void cachePickups(List<Pickup> pickups, String driverId, PickupCacheCallback callback) {
+        syncPickupCache(pickups, driverId, false, callback);
+    }
+    
+    /**
+     * Aplica a resposta da API no cache gravando só as coletas novas ou alteradas
+     * Com {@code complete} = true a lista é a rota inteira e as coletas que sumiram são removidas;
+     * use false para respostas parciais (updatedSince)
+     * O callback recebe o número de coletas efetivamente gravadas ou removidas
+     */
+    public void syncPickupCache(List<Pickup> pickups, String driverId, boolean complete, PickupCacheCallback callback) {
         executor.execute(() -> {
             try {
-                Log.d(TAG, "=== SALVANDO COLETAS NO CACHE ===");
-                Log.d(TAG, "Driver ID: " + driverId);
-                Log.d(TAG, "Número de coletas para salvar: " + pickups.size());
-                
-                // Log detalhado de cada coleta antes da conversão
-                for (Pickup pickup : pickups) {
-                    Log.d(TAG, "Coleta original - ID: " + pickup.getId() + ", Data agendada: '" + pickup.getScheduledDate() + "', Status: " + pickup.getStatus());
-                    // ADICIONADO: Log extra para debug da data
-                    if (pickup.getScheduledDate() == null || pickup.getScheduledDate().trim().isEmpty()) {
-                        Log.w(TAG, "ATENÇÃO: Coleta " + pickup.getId() + " tem scheduledDate null/vazio - será tratada como hoje");
-                    }
-                }
-                
                 List<PickupEntity> entities = PickupConverter.toEntityList(pickups, driverId);
+                PickupCacheDiff diff = pickupDao.syncPickups(driverId, entities, complete);
                 
-                // Log detalhado de cada entidade após a conversão
-                for (PickupEntity entity : entities) {
-                    Log.d(TAG, "Entidade convertida - ID: " + entity.getId() + ", Data agendada: '" + entity.getScheduledDate() + "', Status: " + entity.getStatus() + ", Driver ID: " + entity.getDriverId());
-                }
-                
-                pickupDao.insertOrUpdateAll(entities);
-                
-                Log.d(TAG, "Coletas armazenadas no cache: " + entities.size());
+                Log.d(TAG, String.format("Cache de coletas sincronizado - Novas: %d, Alteradas: %d, Removidas: %d, Sem mudança: %d",
+                    diff.inserts.size(), diff.updates.size(), diff.deletions.size(), diff.unchanged));
                 if (callback != null) {
-                    callback.onSuccess(entities.size());
+                    callback.onSuccess(diff.inserts.size() + diff.updates.size() + diff.deletions.size());
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Erro ao armazenar coletas no cache", e);
@@ -507,6 +664,30 @@ public class OfflineRepository {
         });
     }
     
+    /**
+     * Substitui a rota do motorista para a data informada em uma única transação
+     * Usado no refresh: a leitura do cache nunca vê a rota vazia entre limpar e gravar
+     */
+    public void replaceCachedRoute(List<Pickup> pickups, String driverId, String date, PickupCacheCallback callback) {
+        executor.execute(() -> {
+            try {
+                List<PickupEntity> entities = PickupConverter.toEntityList(pickups, driverId);
+                PickupCacheDiff diff = pickupDao.replaceRouteForDay(driverId, ScheduledDay.of(date), entities);
+                
+                Log.d(TAG, String.format("Rota de %s substituída no cache - Novas: %d, Alteradas: %d, Removidas: %d, Sem mudança: %d",
+                    date, diff.inserts.size(), diff.updates.size(), diff.deletions.size(), diff.unchanged));
+                if (callback != null) {
+                    callback.onSuccess(diff.inserts.size() + diff.updates.size() + diff.deletions.size());
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao substituir rota no cache", e);
+                if (callback != null) {
+                    callback.onError("Erro ao substituir rota: " + e.getMessage());
+                }
+            }
+        });
+    }
+    
     /**
      * Obtém coletas do cache local
      */
@@ -524,20 +705,13 @@ public class OfflineRepository {
                 List<PickupEntity> entities;
                 if (date != null && !date.isEmpty()) {
                     Log.d(TAG, "Buscando por data específica: " + date);
-                    entities = pickupDao.getPickupsByDriverIdAndDate(driverId, date);
+                    entities = pickupDao.getPickupsByDriverIdAndDay(driverId, ScheduledDay.of(date));
                     Log.d(TAG, "Coletas encontradas para a data específica: " + entities.size());
                     
                     // Se não há coletas para hoje, retorna lista vazia (comportamento correto)
                     if (entities.isEmpty()) {
                         Log.d(TAG, "Nenhuma coleta encontrada para a data: " + date);
                     }
-                    
-                    // Debug: mostrar todas as coletas no cache
-                    List<PickupEntity> allEntities = pickupDao.getPickupsByDriverId(driverId);
-                    Log.d(TAG, "=== DEBUG: TODAS AS COLETAS NO CACHE ===");
-                    for (PickupEntity entity : allEntities) {
-                        Log.d(TAG, "Coleta ID: " + entity.getId() + ", Data agendada: '" + entity.getScheduledDate() + "', Status: " + entity.getStatus());
-                    }
                 } else {
                     Log.d(TAG, "Buscando todas as coletas (sem filtro de data)");
                     entities = pickupDao.getPickupsByDriverId(driverId);
@@ -558,6 +732,25 @@ public class OfflineRepository {
         });
     }
     
+    /**
+     * Coletas abertas da rota do dia, paginadas para o carrossel
+     * Só as páginas próximas da posição visível são carregadas; a conversão para Pickup roda no executor
+     */
+    public LiveData<PagingData<Pickup>> observeOpenPickupPages(String driverId, long day, int pageSize) {
+        Pager<Integer, PickupEntity> pager = new Pager<>(
+            new PagingConfig(pageSize, pageSize, false),
+            () -> pickupDao.getOpenPickupsPaged(driverId, day));
+        return Transformations.map(PagingLiveData.getLiveData(pager),
+            page -> PagingDataTransforms.map(page, executor, PickupConverter::fromEntity));
+    }
+    
+    /**
+     * Observa os totais da rota do dia (total e concluídas)
+     */
+    public LiveData<PickupDao.RouteProgress> observeRouteProgress(String driverId, long day) {
+        return pickupDao.observeRouteProgress(driverId, day);
+    }
+    
     /**
      * Atualiza o status de uma coleta no cache
      */
@@ -4,6 +4,8 @@ import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 import androidx.room.ColumnInfo;
 
+import java.util.UUID;
+
 /**
  * Entidade que representa uma operação pendente de sincronização
  * Armazena dados de coletas finalizadas offline para envio posterior
@@ -26,8 +28,23 @@ public class PendingOperation {
     @ColumnInfo(name = "occurrence_id")
     public String occurrenceId;
     
-    @ColumnInfo(name = "driver_attachment_base64")
-    public String driverAttachmentBase64; // Foto em Base64
+    @ColumnInfo(name = "attachment_path")
+    public String attachmentPath; // Nome do arquivo no AttachmentStore
+    
+    @ColumnInfo(name = "attachment_size")
+    public long attachmentSize; // Tamanho do anexo em bytes
+    
+    @ColumnInfo(name = "attachment_hash")
+    public String attachmentHash; // SHA-256 do conteúdo do anexo
+    
+    @ColumnInfo(name = "upload_id")
+    public String uploadId; // Upload retomável em andamento no servidor
+    
+    @ColumnInfo(name = "upload_offset")
+    public long uploadOffset; // Bytes já confirmados pelo servidor
+    
+    @ColumnInfo(name = "upload_length")
+    public long uploadLength; // Tamanho do arquivo sendo enviado
     
     @ColumnInfo(name = "driver_number_packages")
     public Integer driverNumberPackages;
@@ -35,6 +52,9 @@ public class PendingOperation {
     @ColumnInfo(name = "completion_date")
     public String completionDate;
     
+    @ColumnInfo(name = "idempotency_key")
+    public String idempotencyKey; // Enviada no header Idempotency-Key em todas as tentativas
+    
     @ColumnInfo(name = "created_at")
     public long createdAt; // timestamp
     
@@ -44,6 +64,21 @@ public class PendingOperation {
     @ColumnInfo(name = "last_error")
     public String lastError;
     
+    @ColumnInfo(name = "next_attempt_at")
+    public long nextAttemptAt; // Não tenta de novo antes deste timestamp
+    
+    @ColumnInfo(name = "last_http_status")
+    public int lastHttpStatus; // 0 = sem resposta HTTP
+    
+    @ColumnInfo(name = "parked")
+    public boolean parked; // Rejeitada definitivamente, não é mais reenviada
+    
+    @ColumnInfo(name = "leased_by")
+    public String leasedBy; // Execução do SyncWorker que reservou a operação
+    
+    @ColumnInfo(name = "lease_until")
+    public long leaseUntil; // Após este timestamp a reserva expira e pode ser retomada
+    
     // Construtor vazio necessário para Room
     public PendingOperation() {
         this.createdAt = System.currentTimeMillis();
@@ -52,15 +87,14 @@ public class PendingOperation {
     // Construtor com parâmetros principais
     @androidx.room.Ignore
     public PendingOperation(String pickupId, String operationType, String observationDriver, 
-                          String occurrenceId, String driverAttachmentBase64, 
-                          Integer driverNumberPackages, String completionDate) {
+                          String occurrenceId, Integer driverNumberPackages, String completionDate) {
         this.pickupId = pickupId;
         this.operationType = operationType;
         this.observationDriver = observationDriver;
         this.occurrenceId = occurrenceId;
-        this.driverAttachmentBase64 = driverAttachmentBase64;
         this.driverNumberPackages = driverNumberPackages;
         this.completionDate = completionDate;
+        this.idempotencyKey = UUID.randomUUID().toString();
         this.createdAt = System.currentTimeMillis();
         this.retryCount = 0;
     }
@@ -81,8 +115,45 @@ public class PendingOperation {
     public String getOccurrenceId() { return occurrenceId; }
     public void setOccurrenceId(String occurrenceId) { this.occurrenceId = occurrenceId; }
     
-    public String getDriverAttachmentBase64() { return driverAttachmentBase64; }
-    public void setDriverAttachmentBase64(String driverAttachmentBase64) { this.driverAttachmentBase64 = driverAttachmentBase64; }
+    public String getAttachmentPath() { return attachmentPath; }
+    public void setAttachmentPath(String attachmentPath) { this.attachmentPath = attachmentPath; }
+    
+    public long getAttachmentSize() { return attachmentSize; }
+    public void setAttachmentSize(long attachmentSize) { this.attachmentSize = attachmentSize; }
+    
+    public String getAttachmentHash() { return attachmentHash; }
+    public void setAttachmentHash(String attachmentHash) { this.attachmentHash = attachmentHash; }
+    
+    /**
+     * Associa um anexo gravado no AttachmentStore a esta operação
+     */
+    public void setAttachment(AttachmentStore.StoredAttachment attachment) {
+        if (attachment == null) {
+            this.attachmentPath = null;
+            this.attachmentSize = 0;
+            this.attachmentHash = null;
+        } else {
+            this.attachmentPath = attachment.path;
+            this.attachmentSize = attachment.size;
+            this.attachmentHash = attachment.hash;
+        }
+    }
+    
+    /**
+     * Verifica se a operação possui foto anexada
+     */
+    public boolean hasAttachment() {
+        return attachmentPath != null && !attachmentPath.isEmpty();
+    }
+    
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
+    
+    public long getUploadOffset() { return uploadOffset; }
+    public void setUploadOffset(long uploadOffset) { this.uploadOffset = uploadOffset; }
+    
+    public long getUploadLength() { return uploadLength; }
+    public void setUploadLength(long uploadLength) { this.uploadLength = uploadLength; }
     
     public Integer getDriverNumberPackages() { return driverNumberPackages; }
     public void setDriverNumberPackages(Integer driverNumberPackages) { this.driverNumberPackages = driverNumberPackages; }
@@ -90,6 +161,9 @@ public class PendingOperation {
     public String getCompletionDate() { return completionDate; }
     public void setCompletionDate(String completionDate) { this.completionDate = completionDate; }
     
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+    
     public long getCreatedAt() { return createdAt; }
     public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
     
@@ -99,6 +173,21 @@ public class PendingOperation {
     public String getLastError() { return lastError; }
     public void setLastError(String lastError) { this.lastError = lastError; }
     
+    public long getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(long nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    
+    public int getLastHttpStatus() { return lastHttpStatus; }
+    public void setLastHttpStatus(int lastHttpStatus) { this.lastHttpStatus = lastHttpStatus; }
+    
+    public boolean isParked() { return parked; }
+    public void setParked(boolean parked) { this.parked = parked; }
+    
+    public String getLeasedBy() { return leasedBy; }
+    public void setLeasedBy(String leasedBy) { this.leasedBy = leasedBy; }
+    
+    public long getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(long leaseUntil) { this.leaseUntil = leaseUntil; }
+    
     /**
      * Incrementa o contador de tentativas e atualiza o último erro
      */
@@ -111,7 +200,7 @@ public class PendingOperation {
      * Verifica se a operação deve ser reprocessada baseado no número de tentativas
      */
     public boolean shouldRetry() {
-        return retryCount < 5; // Máximo 5 tentativas
+        return !parked && retryCount < RetryPolicy.MAX_ATTEMPTS;
     }
     
     @Override
@@ -120,7 +209,10 @@ public class PendingOperation {
                 "id=" + id +
                 ", pickupId='" + pickupId + '\'' +
                 ", operationType='" + operationType + '\'' +
+                ", attachmentSize=" + attachmentSize +
                 ", retryCount=" + retryCount +
+                ", parked=" + parked +
+                ", leasedBy='" + leasedBy + '\'' +
                 ", createdAt=" + createdAt +
                 '}';
     }
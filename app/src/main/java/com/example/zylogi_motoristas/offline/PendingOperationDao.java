@@ -1,9 +1,11 @@
 package com.example.zylogi_motoristas.offline;
 
+import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 import java.util.List;
 
@@ -26,15 +28,22 @@ public interface PendingOperationDao {
     void updateOperation(PendingOperation operation);
     
     /**
-     * Reseta o contador de retry de todas as operações falhadas
+     * Reseta o contador de retry de todas as operações falhadas ou estacionadas
      */
-    @Query("UPDATE pending_operations SET retry_count = 0, last_error = null WHERE retry_count >= 3")
+    @Query("UPDATE pending_operations SET retry_count = 0, last_error = null, last_http_status = 0, next_attempt_at = 0, parked = 0 " +
+           "WHERE retry_count >= " + RetryPolicy.MAX_ATTEMPTS + " OR parked = 1")
     void resetFailedOperations();
     
+    /**
+     * Libera o backoff das operações que falharam por falta de rede (sem resposta HTTP)
+     */
+    @Query("UPDATE pending_operations SET next_attempt_at = 0 WHERE parked = 0 AND last_http_status = 0")
+    int clearNetworkBackoff();
+    
     /**
      * Reseta o contador de retry de uma operação específica
      */
-    @Query("UPDATE pending_operations SET retry_count = 0, last_error = null WHERE id = :operationId")
+    @Query("UPDATE pending_operations SET retry_count = 0, last_error = null, last_http_status = 0, next_attempt_at = 0, parked = 0 WHERE id = :operationId")
     void resetOperationRetryCount(int operationId);
     
     /**
@@ -70,9 +79,78 @@ public interface PendingOperationDao {
     /**
      * Obtém operações pendentes que devem ser reprocessadas
      */
-    @Query("SELECT * FROM pending_operations WHERE retry_count < 10 ORDER BY created_at ASC")
+    @Query("SELECT * FROM pending_operations WHERE parked = 0 AND retry_count < " + RetryPolicy.MAX_ATTEMPTS +
+           " ORDER BY created_at ASC")
     List<PendingOperation> getRetryableOperations();
     
+    /**
+     * Reserva para o dono informado as operações vencidas que estão livres ou com reserva expirada
+     * O UPDATE condicional só pega linhas que ninguém mais reservou
+     */
+    @Query("UPDATE pending_operations SET leased_by = :owner, lease_until = :leaseUntil " +
+           "WHERE parked = 0 AND retry_count < " + RetryPolicy.MAX_ATTEMPTS + " AND next_attempt_at <= :now " +
+           "AND (leased_by IS NULL OR lease_until <= :now)")
+    int acquireDueLeases(String owner, long now, long leaseUntil);
+    
+    /**
+     * Obtém as operações reservadas por um dono
+     */
+    @Query("SELECT * FROM pending_operations WHERE leased_by = :owner ORDER BY created_at ASC")
+    List<PendingOperation> getLeasedOperations(String owner);
+    
+    /**
+     * Reserva e retorna, de forma atômica, as operações prontas para envio
+     */
+    @Transaction
+    default List<PendingOperation> claimDueOperations(String owner, long now, long leaseUntil) {
+        acquireDueLeases(owner, now, leaseUntil);
+        return getLeasedOperations(owner);
+    }
+    
+    /**
+     * Estende a reserva de uma operação; retorna 0 se ela não pertence mais ao dono
+     */
+    @Query("UPDATE pending_operations SET lease_until = :leaseUntil WHERE id = :id AND leased_by = :owner")
+    int renewLease(int id, String owner, long leaseUntil);
+    
+    /**
+     * Estende todas as reservas de um dono
+     */
+    @Query("UPDATE pending_operations SET lease_until = :leaseUntil WHERE leased_by = :owner")
+    int renewLeases(String owner, long leaseUntil);
+    
+    /**
+     * Libera as reservas que ainda restam de um dono
+     */
+    @Query("UPDATE pending_operations SET leased_by = NULL, lease_until = 0 WHERE leased_by = :owner")
+    int releaseLeases(String owner);
+    
+    /**
+     * Próximo horário em que alguma operação volta a ficar disponível (null se nenhuma)
+     */
+    @Query("SELECT MIN(next_attempt_at) FROM pending_operations WHERE parked = 0 AND retry_count < " + RetryPolicy.MAX_ATTEMPTS +
+           " AND next_attempt_at < " + RetryPolicy.AWAITING_AUTH)
+    Long getNextAttemptAt();
+    
+    /**
+     * Pausa a operação até um novo login, sem contar tentativa
+     */
+    @Query("UPDATE pending_operations SET last_error = :error, last_http_status = :httpStatus, " +
+           "next_attempt_at = " + RetryPolicy.AWAITING_AUTH + " WHERE id = :id")
+    void pauseForAuth(int id, String error, int httpStatus);
+    
+    /**
+     * Libera as operações pausadas por sessão expirada
+     */
+    @Query("UPDATE pending_operations SET next_attempt_at = 0 WHERE parked = 0 AND next_attempt_at = " + RetryPolicy.AWAITING_AUTH)
+    int resumeAuthPausedOperations();
+    
+    /**
+     * Obtém operações rejeitadas definitivamente pelo servidor
+     */
+    @Query("SELECT * FROM pending_operations WHERE parked = 1 ORDER BY created_at ASC")
+    List<PendingOperation> getParkedOperations();
+    
     /**
      * Obtém operações por tipo
      */
@@ -91,6 +169,18 @@ public interface PendingOperationDao {
     @Query("SELECT COUNT(*) FROM pending_operations")
     int getPendingOperationsCount();
     
+    /**
+     * Observa o número de operações pendentes; o Room reemite a cada escrita na tabela
+     */
+    @Query("SELECT COUNT(*) FROM pending_operations")
+    LiveData<Integer> observePendingOperationsCount();
+    
+    /**
+     * Obtém os IDs das coletas com operação aguardando envio (carga do PendingPickupIndex)
+     */
+    @Query("SELECT DISTINCT pickup_id FROM pending_operations WHERE pickup_id IS NOT NULL")
+    List<String> getPendingPickupIds();
+    
     /**
      * Conta operações pendentes por tipo
      */
@@ -100,27 +190,67 @@ public interface PendingOperationDao {
     /**
      * Obtém operações que falharam múltiplas vezes (para análise)
      */
-    @Query("SELECT * FROM pending_operations WHERE retry_count >= 3 ORDER BY retry_count DESC")
+    @Query("SELECT * FROM pending_operations WHERE retry_count >= " + RetryPolicy.MAX_ATTEMPTS +
+           " OR parked = 1 ORDER BY retry_count DESC")
     List<PendingOperation> getFailedOperations();
     
     /**
-     * Remove operações antigas (mais de 7 dias) que falharam muitas vezes
+     * Remove operações antigas (mais de 7 dias) que esgotaram as tentativas ou foram estacionadas
      */
-    @Query("DELETE FROM pending_operations WHERE retry_count >= 5 AND created_at < :cutoffTime")
+    @Query("DELETE FROM pending_operations WHERE (retry_count >= " + RetryPolicy.MAX_ATTEMPTS +
+           " OR parked = 1) AND created_at < :cutoffTime")
     void cleanupOldFailedOperations(long cutoffTime);
     
     /**
      * Obtém o tamanho total das imagens armazenadas (para monitoramento)
      */
-    @Query("SELECT SUM(LENGTH(driver_attachment_base64)) FROM pending_operations WHERE driver_attachment_base64 IS NOT NULL")
+    @Query("SELECT SUM(attachment_size) FROM pending_operations WHERE attachment_path IS NOT NULL")
     Long getTotalImageDataSize();
     
+    /**
+     * Conta quantas operações referenciam um arquivo de anexo
+     * (arquivos são endereçados por conteúdo e podem ser compartilhados)
+     */
+    @Query("SELECT COUNT(*) FROM pending_operations WHERE attachment_path = :attachmentPath")
+    int countOperationsWithAttachment(String attachmentPath);
+    
+    /**
+     * Obtém os caminhos de todos os anexos ainda referenciados
+     */
+    @Query("SELECT DISTINCT attachment_path FROM pending_operations WHERE attachment_path IS NOT NULL")
+    List<String> getReferencedAttachmentPaths();
+    
+    /**
+     * Obtém os hashes de todos os anexos ainda referenciados
+     */
+    @Query("SELECT DISTINCT attachment_hash FROM pending_operations WHERE attachment_hash IS NOT NULL")
+    List<String> getReferencedAttachmentHashes();
+    
+    /**
+     * Obtém operações pendentes que possuem foto
+     */
+    @Query("SELECT * FROM pending_operations WHERE attachment_path IS NOT NULL ORDER BY created_at ASC")
+    List<PendingOperation> getOperationsWithAttachment();
+    
+    /**
+     * Registra uma falha de sincronização com o agendamento decidido pela RetryPolicy
+     */
+    @Query("UPDATE pending_operations SET retry_count = retry_count + 1, last_error = :error, " +
+           "last_http_status = :httpStatus, next_attempt_at = :nextAttemptAt, parked = :parked WHERE id = :id")
+    void recordFailure(int id, String error, int httpStatus, long nextAttemptAt, boolean parked);
+    
     /**
      * Incrementa o contador de retry para uma operação específica
      */
     @Query("UPDATE pending_operations SET retry_count = retry_count + 1, last_error = :error WHERE id = :id")
     void incrementRetryCount(int id, String error);
     
+    /**
+     * Grava o progresso do upload retomável da foto
+     */
+    @Query("UPDATE pending_operations SET upload_id = :uploadId, upload_offset = :offset, upload_length = :length WHERE id = :id")
+    void updateUploadProgress(int id, String uploadId, long offset, long length);
+    
     /**
      * Verifica se existe uma operação para um pickup específico
      */
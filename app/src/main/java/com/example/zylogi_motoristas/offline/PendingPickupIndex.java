@@ -0,0 +1,88 @@
+package com.example.zylogi_motoristas.offline;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Conjunto em memória dos IDs de coletas com operação aguardando envio
+ * Carregado uma vez do banco pelo OfflineRepository e atualizado a cada operação salva ou removida;
+ * a leitura é síncrona e não toca no SQLite (usada para barrar uma segunda finalização da mesma coleta)
+ */
+public final class PendingPickupIndex {
+
+    private static volatile PendingPickupIndex INSTANCE;
+
+    private final Set<String> pickupIds = new HashSet<>();
+
+    // Cópia imutável publicada para leitura sem trava
+    private volatile Set<String> snapshot = Collections.emptySet();
+    // Incrementado a cada alteração; a carga completa descarta leituras feitas antes de uma alteração
+    private long version;
+
+    private PendingPickupIndex() {
+    }
+
+    public static PendingPickupIndex getInstance() {
+        if (INSTANCE == null) {
+            synchronized (PendingPickupIndex.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new PendingPickupIndex();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Verifica se a coleta tem operação aguardando envio
+     */
+    public boolean contains(String pickupId) {
+        return pickupId != null && snapshot.contains(pickupId);
+    }
+
+    public Set<String> getSnapshot() {
+        return snapshot;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Substitui o conjunto pelo estado lido do banco
+     * @return false se houve alteração depois de readVersion (a leitura está velha e deve ser refeita)
+     */
+    synchronized boolean load(Collection<String> ids, long readVersion) {
+        if (readVersion != version) {
+            return false;
+        }
+        pickupIds.clear();
+        for (String id : ids) {
+            if (id != null) {
+                pickupIds.add(id);
+            }
+        }
+        publish();
+        return true;
+    }
+
+    synchronized void add(String pickupId) {
+        version++;
+        if (pickupId != null && pickupIds.add(pickupId)) {
+            publish();
+        }
+    }
+
+    synchronized void remove(String pickupId) {
+        version++;
+        if (pickupId != null && pickupIds.remove(pickupId)) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        snapshot = Collections.unmodifiableSet(new HashSet<>(pickupIds));
+    }
+}
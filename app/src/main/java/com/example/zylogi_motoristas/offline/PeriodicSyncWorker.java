@@ -0,0 +1,24 @@
+package com.example.zylogi_motoristas.offline;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Worker periódico que apenas pede uma sincronização ao SyncCoordinator
+ * A sincronização em si roda sempre no trabalho único do coordenador, nunca em paralelo
+ */
+public class PeriodicSyncWorker extends Worker {
+
+    public PeriodicSyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        SyncCoordinator.getInstance(getApplicationContext()).requestSync("periodic");
+        return Result.success();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.zylogi_motoristas.offline;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calcula a diferença entre as coletas recebidas da API e as que já estão em cache
+ * Compara pelo hash do conteúdo: só as coletas novas ou alteradas são gravadas,
+ * e só as que sumiram da resposta são removidas
+ */
+public final class PickupCacheDiff {
+
+    private static final char FIELD_SEPARATOR = '\u001F';
+    private static final char NULL_MARKER = '\u0000';
+
+    public final List<PickupEntity> inserts = new ArrayList<>();
+    public final List<PickupEntity> updates = new ArrayList<>();
+    public final List<String> deletions = new ArrayList<>();
+    public int unchanged;
+
+    private PickupCacheDiff() {
+    }
+
+    /**
+     * @param storedHashes id -> hash das coletas em cache do motorista
+     * @param incoming     coletas recebidas (o hash de cada uma é calculado e preenchido aqui)
+     * @param complete     true se a resposta traz a rota inteira; numa resposta parcial
+     *                     (updatedSince) nada é removido
+     */
+    public static PickupCacheDiff compute(Map<String, String> storedHashes, List<PickupEntity> incoming,
+                                          boolean complete) {
+        PickupCacheDiff diff = new PickupCacheDiff();
+        Set<String> seen = new HashSet<>();
+
+        for (PickupEntity entity : incoming) {
+            if (entity == null || entity.getId() == null || !seen.add(entity.getId())) {
+                continue;
+            }
+            entity.setContentHash(contentHash(entity));
+
+            if (!storedHashes.containsKey(entity.getId())) {
+                diff.inserts.add(entity);
+            } else if (!entity.getContentHash().equals(storedHashes.get(entity.getId()))) {
+                diff.updates.add(entity);
+            } else {
+                diff.unchanged++;
+            }
+        }
+
+        if (complete) {
+            for (String storedId : storedHashes.keySet()) {
+                if (!seen.contains(storedId)) {
+                    diff.deletions.add(storedId);
+                }
+            }
+        }
+        return diff;
+    }
+
+    public boolean isEmpty() {
+        return inserts.isEmpty() && updates.isEmpty() && deletions.isEmpty();
+    }
+
+    /**
+     * Hash dos campos vindos da API (timestamps locais ficam de fora)
+     */
+    static String contentHash(PickupEntity entity) {
+        StringBuilder content = new StringBuilder(256);
+        append(content, entity.getReferenceId());
+        append(content, entity.getScheduledDate());
+        append(content, entity.getStatus());
+        append(content, String.valueOf(entity.isFragile()));
+        append(content, entity.getObservation());
+        append(content, entity.getPickupRouteId());
+        append(content, entity.getVehicleId());
+        append(content, entity.getDriverNumberPackages() != null ? entity.getDriverNumberPackages().toString() : null);
+        append(content, entity.getClientData());
+        append(content, entity.getClientAddressData());
+        append(content, entity.getDriverId());
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                .digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 indisponível", e);
+        }
+    }
+
+    private static void append(StringBuilder content, String value) {
+        if (value == null) {
+            content.append(NULL_MARKER);
+        } else {
+            content.append(value);
+        }
+        content.append(FIELD_SEPARATOR);
+    }
+}
@@ -79,6 +79,7 @@ public class PickupConverter {
             safeSetField(pickup, "pickupRouteId", entity.getPickupRouteId());
             safeSetField(pickup, "vehicleId", entity.getVehicleId());
             safeSetField(pickup, "driverNumberPackages", entity.getDriverNumberPackages());
+            safeSetField(pickup, "contentHash", entity.getContentHash());
             
             // Deserializa objetos complexos do JSON com tratamento robusto
             if (entity.getClientData() != null && !entity.getClientData().trim().isEmpty()) {
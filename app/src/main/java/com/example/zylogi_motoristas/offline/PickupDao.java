@@ -1,12 +1,19 @@
 package com.example.zylogi_motoristas.offline;
 
+import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
+import androidx.room.ColumnInfo;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO para gerenciar coletas armazenadas localmente
@@ -14,6 +21,48 @@ import java.util.List;
 @Dao
 public interface PickupDao {
     
+    // Limite de parâmetros por instrução do SQLite (999), com folga para os demais
+    int MAX_IDS_PER_QUERY = 900;
+    
+    // Rota de um dia: coletas do dia mais as sem data; usa o índice (driver_id, scheduled_day, status)
+    String ROUTE_FOR_DAY = "driver_id = :driverId AND scheduled_day IN (:day, -1)";
+    
+    // Coletas finalizadas localmente que aguardam envio (o filtro de nulos mantém o NOT IN correto)
+    String PENDING_OPERATION_PICKUPS = "(SELECT pickup_id FROM pending_operations WHERE pickup_id IS NOT NULL)";
+    
+    // Coleta ainda aberta no carrossel: PENDING e sem finalização local aguardando envio
+    String OPEN_PICKUP = "status = 'PENDING' COLLATE NOCASE AND id NOT IN " + PENDING_OPERATION_PICKUPS;
+    
+    // Consultas completas por dia, compartilhadas com o teste de plano de execução
+    String SELECT_ROUTE_FOR_DAY = "SELECT * FROM cached_pickups WHERE " + ROUTE_FOR_DAY + " ORDER BY scheduled_date ASC";
+    String SELECT_OPEN_PICKUPS_PAGED = "SELECT * FROM cached_pickups WHERE " + ROUTE_FOR_DAY + " AND " + OPEN_PICKUP +
+        " ORDER BY scheduled_date ASC, id ASC";
+    String SELECT_ROUTE_PROGRESS = "SELECT COUNT(*) AS total, " +
+        "COALESCE(SUM(CASE WHEN " + OPEN_PICKUP + " THEN 0 ELSE 1 END), 0) AS concluded " +
+        "FROM cached_pickups WHERE " + ROUTE_FOR_DAY;
+    String SELECT_DAY_RANGE = "SELECT * FROM cached_pickups WHERE driver_id = :driverId " +
+        "AND scheduled_day BETWEEN :startDay AND :endDay ORDER BY scheduled_date ASC";
+    String SELECT_PENDING_BY_DRIVER = "SELECT * FROM cached_pickups WHERE driver_id = :driverId " +
+        "AND status = 'PENDING' ORDER BY scheduled_date ASC";
+    
+    /**
+     * Id e hash de conteúdo de uma coleta em cache
+     */
+    class StoredHash {
+        public String id;
+        
+        @ColumnInfo(name = "content_hash")
+        public String contentHash;
+    }
+    
+    /**
+     * Totais da rota do dia para a barra de progresso
+     */
+    class RouteProgress {
+        public int total;
+        public int concluded; // finalizadas no servidor ou aguardando envio
+    }
+    
     /**
      * Insere ou atualiza uma coleta (substitui se já existir)
      */
@@ -56,12 +105,6 @@ public interface PickupDao {
     @Query("DELETE FROM cached_pickups WHERE cached_at < :cutoffTime")
     void deleteOldPickups(long cutoffTime);
     
-    /**
-     * Remove coletas de um motorista que não são da data especificada
-     */
-    @Query("DELETE FROM cached_pickups WHERE driver_id = :driverId AND (scheduled_date IS NULL OR scheduled_date NOT LIKE :date || '%')")
-    void deletePickupsNotFromDate(String driverId, String date);
-    
     /**
      * Obtém uma coleta pelo ID
      */
@@ -75,22 +118,35 @@ public interface PickupDao {
     List<PickupEntity> getPickupsByDriverId(String driverId);
     
     /**
-     * Obtém coletas de um motorista para uma data específica
-     * CORRIGIDO: Inclui coletas com scheduledDate null (assumindo que são para hoje)
+     * Obtém coletas de um motorista para um dia específico (epoch-day)
+     * Inclui coletas sem data de agendamento (assumindo que são para hoje)
+     */
+    @Query(SELECT_ROUTE_FOR_DAY)
+    List<PickupEntity> getPickupsByDriverIdAndDay(String driverId, long day);
+    
+    /**
+     * Coletas abertas da rota do dia, paginadas para o carrossel
+     * O Room invalida a fonte quando cached_pickups ou pending_operations mudam
+     */
+    @Query(SELECT_OPEN_PICKUPS_PAGED)
+    PagingSource<Integer, PickupEntity> getOpenPickupsPaged(String driverId, long day);
+    
+    /**
+     * Observa os totais da rota do dia sem carregar as coletas
      */
-    @Query("SELECT * FROM cached_pickups WHERE driver_id = :driverId AND (scheduled_date LIKE :date || '%' OR scheduled_date IS NULL) ORDER BY scheduled_date ASC")
-    List<PickupEntity> getPickupsByDriverIdAndDate(String driverId, String date);
+    @Query(SELECT_ROUTE_PROGRESS)
+    LiveData<RouteProgress> observeRouteProgress(String driverId, long day);
     
     /**
-     * Obtém coletas de um motorista em um intervalo de datas
+     * Obtém coletas de um motorista em um intervalo de dias (epoch-day, inclusivo)
      */
-    @Query("SELECT * FROM cached_pickups WHERE driver_id = :driverId AND scheduled_date BETWEEN :startDate AND :endDate ORDER BY scheduled_date ASC")
-    List<PickupEntity> getPickupsByDriverIdAndDateRange(String driverId, String startDate, String endDate);
+    @Query(SELECT_DAY_RANGE)
+    List<PickupEntity> getPickupsByDriverIdAndDayRange(String driverId, long startDay, long endDay);
     
     /**
      * Obtém coletas pendentes de um motorista
      */
-    @Query("SELECT * FROM cached_pickups WHERE driver_id = :driverId AND status = 'PENDING' ORDER BY scheduled_date ASC")
+    @Query(SELECT_PENDING_BY_DRIVER)
     List<PickupEntity> getPendingPickupsByDriverId(String driverId);
     
     /**
@@ -124,9 +180,10 @@ public interface PickupDao {
     boolean pickupExists(String pickupId);
     
     /**
-     * Atualiza o status de uma coleta
+     * Atualiza o status de uma coleta com um valor local (ainda não confirmado pela API)
+     * O hash é zerado para a próxima resposta da API sempre regravar a linha no diff
      */
-    @Query("UPDATE cached_pickups SET status = :status, last_updated = :timestamp WHERE id = :pickupId")
+    @Query("UPDATE cached_pickups SET status = :status, last_updated = :timestamp, content_hash = NULL WHERE id = :pickupId")
     void updatePickupStatus(String pickupId, String status, long timestamp);
     
     /**
@@ -140,4 +197,74 @@ public interface PickupDao {
      */
     @Query("DELETE FROM cached_pickups")
     void clearAllPickups();
-}
\ No newline at end of file
+    
+    /**
+     * Obtém id e hash de conteúdo das coletas de um motorista
+     */
+    @Query("SELECT id, content_hash FROM cached_pickups WHERE driver_id = :driverId")
+    List<StoredHash> getStoredHashes(String driverId);
+    
+    /**
+     * Remove coletas de um motorista pelos IDs
+     */
+    @Query("DELETE FROM cached_pickups WHERE driver_id = :driverId AND id IN (:pickupIds)")
+    void deleteByIds(String driverId, List<String> pickupIds);
+    
+    /**
+     * Obtém id e hash de conteúdo das coletas de um motorista para um dia
+     * Mesmo filtro de getPickupsByDriverIdAndDay, para que a rota lida seja a rota substituída
+     */
+    @Query("SELECT id, content_hash FROM cached_pickups WHERE " + ROUTE_FOR_DAY)
+    List<StoredHash> getStoredHashesForDay(String driverId, long day);
+    
+    /**
+     * Aplica no cache a resposta da API gravando só a diferença, em uma única transação
+     * Coletas sem mudança não são tocadas; as que sumiram da resposta completa são removidas
+     */
+    @Transaction
+    default PickupCacheDiff syncPickups(String driverId, List<PickupEntity> incoming, boolean complete) {
+        PickupCacheDiff diff = PickupCacheDiff.compute(toHashMap(getStoredHashes(driverId)), incoming, complete);
+        applyDiff(driverId, diff);
+        return diff;
+    }
+    
+    /**
+     * Substitui a rota de um motorista para um dia em um único passo atômico
+     * Quem lê o cache vê a rota antiga ou a nova, nunca um estado parcial;
+     * coletas de outros dias não são afetadas
+     */
+    @Transaction
+    default PickupCacheDiff replaceRouteForDay(String driverId, long day, List<PickupEntity> route) {
+        PickupCacheDiff diff = PickupCacheDiff.compute(toHashMap(getStoredHashesForDay(driverId, day)), route, true);
+        applyDiff(driverId, diff);
+        return diff;
+    }
+    
+    /**
+     * Grava as coletas novas/alteradas e remove as excluídas; chamar dentro de uma transação
+     */
+    default void applyDiff(String driverId, PickupCacheDiff diff) {
+        List<PickupEntity> changed = new ArrayList<>(diff.inserts);
+        changed.addAll(diff.updates);
+        long now = System.currentTimeMillis();
+        for (PickupEntity entity : changed) {
+            entity.setCachedAt(now);
+            entity.setLastUpdated(now);
+        }
+        if (!changed.isEmpty()) {
+            insertOrUpdateAll(changed);
+        }
+        for (int start = 0; start < diff.deletions.size(); start += MAX_IDS_PER_QUERY) {
+            int end = Math.min(start + MAX_IDS_PER_QUERY, diff.deletions.size());
+            deleteByIds(driverId, diff.deletions.subList(start, end));
+        }
+    }
+    
+    static Map<String, String> toHashMap(List<StoredHash> storedHashes) {
+        Map<String, String> hashes = new HashMap<>();
+        for (StoredHash stored : storedHashes) {
+            hashes.put(stored.id, stored.contentHash);
+        }
+        return hashes;
+    }
+}
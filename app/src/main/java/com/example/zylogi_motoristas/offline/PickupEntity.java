@@ -1,6 +1,7 @@
 package com.example.zylogi_motoristas.offline;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.ColumnInfo;
 import androidx.annotation.NonNull;
@@ -9,7 +10,8 @@ import androidx.annotation.NonNull;
  * Entidade que representa uma coleta armazenada localmente
  * Permite acesso offline às coletas já baixadas
  */
-@Entity(tableName = "cached_pickups")
+@Entity(tableName = "cached_pickups",
+        indices = {@Index(value = {"driver_id", "scheduled_day", "status"})})
 public class PickupEntity {
     
     @PrimaryKey
@@ -22,6 +24,9 @@ public class PickupEntity {
     @ColumnInfo(name = "scheduled_date")
     public String scheduledDate;
     
+    @ColumnInfo(name = "scheduled_day", defaultValue = "-1")
+    public long scheduledDay = ScheduledDay.UNSCHEDULED; // epoch-day de scheduled_date, mantido pelo setter
+    
     @ColumnInfo(name = "status")
     public String status;
     
@@ -51,6 +56,9 @@ public class PickupEntity {
     @ColumnInfo(name = "driver_id")
     public String driverId;
     
+    @ColumnInfo(name = "content_hash")
+    public String contentHash; // hash do conteúdo vindo da API, para gravar só o que mudou
+    
     @ColumnInfo(name = "cached_at")
     public long cachedAt; // timestamp de quando foi armazenado
     
@@ -68,6 +76,7 @@ public class PickupEntity {
         this.id = id;
         this.referenceId = referenceId;
         this.scheduledDate = scheduledDate;
+        this.scheduledDay = ScheduledDay.of(scheduledDate);
         this.status = status;
         this.isFragile = isFragile;
         this.observation = observation;
@@ -89,7 +98,13 @@ public class PickupEntity {
     public void setReferenceId(String referenceId) { this.referenceId = referenceId; }
     
     public String getScheduledDate() { return scheduledDate; }
-    public void setScheduledDate(String scheduledDate) { this.scheduledDate = scheduledDate; }
+    public void setScheduledDate(String scheduledDate) {
+        this.scheduledDate = scheduledDate;
+        this.scheduledDay = ScheduledDay.of(scheduledDate);
+    }
+    
+    public long getScheduledDay() { return scheduledDay; }
+    public void setScheduledDay(long scheduledDay) { this.scheduledDay = scheduledDay; }
     
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
@@ -118,6 +133,9 @@ public class PickupEntity {
     public String getDriverId() { return driverId; }
     public void setDriverId(String driverId) { this.driverId = driverId; }
     
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    
     public long getCachedAt() { return cachedAt; }
     public void setCachedAt(long cachedAt) { this.cachedAt = cachedAt; }
     
@@ -0,0 +1,76 @@
+package com.example.zylogi_motoristas.offline;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.zylogi_motoristas.photo.UploadEncoder;
+import com.example.zylogi_motoristas.photo.UploadRendition;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Worker que pré-codifica as fotos das operações pendentes
+ * Roda com o aparelho ocioso ou carregando, para que a sincronização
+ * só precise transmitir bytes já finais
+ * Gera todas as versões de envio, já que a rede do momento do envio ainda não é conhecida
+ */
+public class PrecompressWorker extends Worker {
+
+    private static final String TAG = "PrecompressWorker";
+
+    private final PendingOperationDao dao;
+    private final AttachmentStore attachmentStore;
+    private final UploadEncoder uploadEncoder;
+
+    public PrecompressWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+        dao = OfflineDatabase.getInstance(context).pendingOperationDao();
+        attachmentStore = AttachmentStore.getInstance(context);
+        uploadEncoder = UploadEncoder.getInstance(context);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        List<PendingOperation> operations = dao.getOperationsWithAttachment();
+        int encoded = 0;
+
+        for (PendingOperation operation : operations) {
+            if (isStopped()) {
+                Log.i(TAG, "Pré-compressão interrompida após " + encoded + " versões");
+                return Result.success();
+            }
+
+            File source = attachmentStore.getFile(operation.getAttachmentPath());
+            if (source == null || !source.isFile()) {
+                continue;
+            }
+
+            String hash = operation.getAttachmentHash();
+            for (UploadRendition rendition : UploadRendition.values()) {
+                if (hash != null && uploadEncoder.isEncoded(hash, rendition)) {
+                    continue;
+                }
+                try {
+                    // Versões que são o próprio original ficam registradas e não contam como codificadas
+                    if (!uploadEncoder.encode(source, hash, rendition).isOriginal()) {
+                        encoded++;
+                    }
+                } catch (Exception e) {
+                    // Não impede a sincronização: o SyncWorker codifica na hora se necessário
+                    Log.w(TAG, "Falha ao pré-codificar foto da operação " + operation.getId()
+                        + " (" + rendition + "): " + e.getMessage());
+                }
+            }
+        }
+
+        uploadEncoder.pruneCache(new HashSet<>(dao.getReferencedAttachmentHashes()));
+        Log.i(TAG, "Pré-compressão concluída: " + encoded + " versões codificadas");
+        return Result.success();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.zylogi_motoristas.offline;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.zylogi_motoristas.BuildConfig;
+import com.example.zylogi_motoristas.RetrofitClient;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Verifica se a nossa API está alcançável
+ * Faz um HEAD na URL base usando o mesmo OkHttpClient do Retrofit, então reaproveita
+ * conexões e sessões TLS do tráfego real. O resultado fica em cache por um curto período
+ * e sondagens simultâneas esperam a que já está em andamento
+ *
+ * Nenhuma trava é mantida durante a sondagem: o resultado é publicado em um campo volatile
+ * e invalidate() só incrementa a geração, então pode ser chamado da main thread ou do
+ * callback de rede sem esperar uma sondagem de até PROBE_TIMEOUT_SECONDS
+ */
+public class ReachabilityService {
+
+    private static final String TAG = "ReachabilityService";
+
+    static final long REACHABLE_TTL_MS = 30 * 1000;
+    static final long UNREACHABLE_TTL_MS = 10 * 1000;
+    private static final long PROBE_TIMEOUT_SECONDS = 5;
+
+    private static volatile ReachabilityService INSTANCE;
+
+    public interface ReachabilityCallback {
+        void onResult(boolean reachable);
+    }
+
+    private final OkHttpClient probeClient;
+    private final String baseUrl;
+    private final ExecutorService executor;
+
+    // Incrementada a cada mudança de rede; resultados e sondagens de gerações anteriores são ignorados
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<Probe> inFlight = new AtomicReference<>();
+    private volatile Result lastResult;
+
+    ReachabilityService(OkHttpClient client, String baseUrl) {
+        // newBuilder compartilha pool de conexões e dispatcher; só o prazo é próprio da sondagem
+        this.probeClient = client.newBuilder()
+            .callTimeout(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+        this.baseUrl = baseUrl;
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Obtém a instância singleton do serviço
+     */
+    public static ReachabilityService getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ReachabilityService.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ReachabilityService(
+                        RetrofitClient.getHttpClient(context.getApplicationContext()), BuildConfig.API_BASE_URL);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Indica se a API está alcançável, sondando apenas se o resultado em cache expirou
+     * Bloqueia; nunca deve ser chamado na main thread
+     */
+    public boolean isReachableSync() {
+        while (true) {
+            long currentGeneration = generation.get();
+            Result cached = lastResult;
+            if (cached != null && cached.isFresh(currentGeneration, System.currentTimeMillis())) {
+                return cached.reachable;
+            }
+
+            Probe running = inFlight.get();
+            if (running != null && running.generation == currentGeneration) {
+                // Outra thread já está sondando esta rede: espera o mesmo resultado
+                return running.await();
+            }
+
+            Probe mine = new Probe(currentGeneration, new FutureTask<>(this::probe));
+            if (!inFlight.compareAndSet(running, mine)) {
+                continue;
+            }
+            try {
+                mine.task.run();
+                boolean reachable = mine.await();
+                // Se a rede mudou durante a sondagem, o resultado não vale para a próxima consulta
+                if (generation.get() == currentGeneration) {
+                    lastResult = new Result(reachable, System.currentTimeMillis(), currentGeneration);
+                }
+                return reachable;
+            } finally {
+                inFlight.compareAndSet(mine, null);
+            }
+        }
+    }
+
+    /**
+     * Versão assíncrona de isReachableSync; o callback roda em background
+     */
+    public void checkReachability(ReachabilityCallback callback) {
+        executor.execute(() -> {
+            boolean reachable = isReachableSync();
+            if (callback != null) {
+                callback.onResult(reachable);
+            }
+        });
+    }
+
+    /**
+     * Descarta o resultado em cache (a rede mudou)
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private boolean probe() {
+        Request request = new Request.Builder()
+            .url(baseUrl)
+            .head()
+            .build();
+
+        try (Response response = probeClient.newCall(request).execute()) {
+            // Qualquer resposta da aplicação conta (401, 404...); só erros de gateway/servidor indicam API fora
+            int code = response.code();
+            boolean reachable = code < 500 || code == 501;
+            Log.d(TAG, "Sondagem da API: HTTP " + code + (reachable ? " - alcançável" : " - indisponível"));
+            return reachable;
+        } catch (IOException e) {
+            Log.w(TAG, "API inalcançável: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Resultado publicado de uma sondagem
+     */
+    private static final class Result {
+        final boolean reachable;
+        final long checkedAt;
+        final long generation;
+
+        Result(boolean reachable, long checkedAt, long generation) {
+            this.reachable = reachable;
+            this.checkedAt = checkedAt;
+            this.generation = generation;
+        }
+
+        boolean isFresh(long currentGeneration, long now) {
+            long ttl = reachable ? REACHABLE_TTL_MS : UNREACHABLE_TTL_MS;
+            return generation == currentGeneration && now - checkedAt < ttl;
+        }
+    }
+
+    /**
+     * Sondagem em andamento, compartilhada pelas threads que consultam a mesma rede
+     */
+    private static final class Probe {
+        final long generation;
+        final FutureTask<Boolean> task;
+
+        Probe(long generation, FutureTask<Boolean> task) {
+            this.generation = generation;
+            this.task = task;
+        }
+
+        boolean await() {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.zylogi_motoristas.offline;
+
+import com.example.zylogi_motoristas.ApiService;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Upload de fotos em trechos, retomável a partir do último offset confirmado
+ *
+ * Protocolo (no estilo tus):
+ * - POST uploads com Upload-Length cria o upload e devolve Location: uploads/{id}
+ * - HEAD uploads/{id} devolve Upload-Offset, os bytes já confirmados pelo servidor
+ * - PATCH uploads/{id} com Upload-Offset envia um trecho e devolve o novo Upload-Offset
+ *
+ * Cada offset confirmado é gravado pelo ProgressStore, então uma conexão perdida
+ * só custa o trecho em andamento, e não a foto inteira
+ */
+public class ResumableUploader {
+
+    public static final long DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    static final String HEADER_OFFSET = "Upload-Offset";
+
+    private static final MediaType OFFSET_STREAM = MediaType.parse("application/offset+octet-stream");
+    private static final long CONTROL_DEADLINE_SECONDS = 30;
+    private static final long CHUNK_BASE_DEADLINE_SECONDS = 30;
+    private static final long MIN_UPLOAD_BYTES_PER_SECOND = 8 * 1024; // ~64 kbps, 3G fraco
+
+    /**
+     * Persiste o progresso do upload (no app, a linha da operação no Room)
+     */
+    public interface ProgressStore {
+        void save(String uploadId, long offset, long length);
+    }
+
+    private final ApiService apiService;
+    private final long chunkSize;
+
+    public ResumableUploader(ApiService apiService) {
+        this(apiService, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ResumableUploader(ApiService apiService, long chunkSize) {
+        this.apiService = apiService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Envia o arquivo, retomando o upload existente quando possível
+     * Retorna o id do upload concluído, para ser referenciado na finalização
+     *
+     * @throws UnsupportedException se o servidor não tem o endpoint de upload
+     * @throws IOException em falha de rede ou erro HTTP; o progresso já confirmado fica salvo
+     */
+    public String upload(File file, String mimeType, String uploadId, long uploadLength,
+                         ProgressStore progressStore) throws IOException {
+        long length = file.length();
+        long offset = -1;
+
+        // Upload anterior só vale se for do mesmo arquivo (mesmo tamanho)
+        if (uploadId != null && uploadLength == length) {
+            offset = queryOffset(uploadId);
+        }
+
+        if (offset < 0) {
+            uploadId = create(length, mimeType);
+            offset = 0;
+        }
+        progressStore.save(uploadId, offset, length);
+
+        while (offset < length) {
+            long size = Math.min(chunkSize, length - offset);
+            Call<Void> call = apiService.uploadChunk(uploadId, offset,
+                new FileStreamingRequestBody(OFFSET_STREAM, file, offset, size));
+            call.timeout().timeout(CHUNK_BASE_DEADLINE_SECONDS + size / MIN_UPLOAD_BYTES_PER_SECOND, TimeUnit.SECONDS);
+            Response<Void> response = call.execute();
+
+            if (response.code() == 409) {
+                // Offset divergente (por exemplo, trecho parcialmente recebido): pergunta ao servidor
+                offset = queryOffset(uploadId);
+                if (offset < 0) {
+                    throw new IOException("Upload expirou no servidor: " + uploadId);
+                }
+            } else if (response.isSuccessful()) {
+                offset = parseOffset(response, offset + size);
+            } else {
+                throw new IOException("Erro HTTP no envio do trecho: " + response.code() + ": " + response.message());
+            }
+            progressStore.save(uploadId, offset, length);
+        }
+
+        return uploadId;
+    }
+
+    /**
+     * Consulta o offset confirmado; retorna -1 se o upload não existe mais
+     */
+    private long queryOffset(String uploadId) throws IOException {
+        Call<Void> call = apiService.getUploadOffset(uploadId);
+        call.timeout().timeout(CONTROL_DEADLINE_SECONDS, TimeUnit.SECONDS);
+        Response<Void> response = call.execute();
+
+        if (response.code() == 404 || response.code() == 410) {
+            return -1;
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("Erro HTTP ao consultar upload: " + response.code() + ": " + response.message());
+        }
+        return parseOffset(response, -1);
+    }
+
+    private String create(long length, String mimeType) throws IOException {
+        Call<Void> call = apiService.createUpload(length, mimeType);
+        call.timeout().timeout(CONTROL_DEADLINE_SECONDS, TimeUnit.SECONDS);
+        Response<Void> response = call.execute();
+
+        if (response.code() == 404 || response.code() == 405 || response.code() == 501) {
+            throw new UnsupportedException("Servidor sem upload retomável: " + response.code());
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("Erro HTTP ao criar upload: " + response.code() + ": " + response.message());
+        }
+
+        String location = response.headers().get("Location");
+        if (location == null || location.isEmpty()) {
+            throw new IOException("Servidor não informou o Location do upload");
+        }
+        // O Location pode ser absoluto ou relativo: o id é sempre o último segmento
+        String path = location.endsWith("/") ? location.substring(0, location.length() - 1) : location;
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static long parseOffset(Response<Void> response, long fallback) throws IOException {
+        String value = response.headers().get(HEADER_OFFSET);
+        if (value == null) {
+            if (fallback < 0) {
+                throw new IOException("Servidor não informou o " + HEADER_OFFSET);
+            }
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Upload-Offset inválido: " + value);
+        }
+    }
+
+    /**
+     * O servidor não oferece upload retomável; o chamador deve usar o multipart
+     */
+    public static class UnsupportedException extends IOException {
+        public UnsupportedException(String message) {
+            super(message);
+        }
+    }
+}
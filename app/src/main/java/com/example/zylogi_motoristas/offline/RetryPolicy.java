@@ -0,0 +1,107 @@
+package com.example.zylogi_motoristas.offline;
+
+import java.util.Random;
+
+/**
+ * Política de retentativa por operação
+ * - erros transitórios (rede, 408, 425, 429, 5xx) voltam com backoff exponencial e jitter
+ * - 401/403 (sessão expirada) pausam a operação até um novo login, sem contar tentativa
+ * - 409 na finalização significa que o servidor já aplicou a operação: ela é descartada
+ * - rejeições definitivas do servidor (demais 4xx) ficam estacionadas, sem novas tentativas
+ * - após MAX_ATTEMPTS a operação também é estacionada
+ */
+public class RetryPolicy {
+
+    public static final int MAX_ATTEMPTS = 10;
+
+    // Status usado quando não houve resposta HTTP (falha de rede, prazo esgotado, erro local)
+    public static final int NO_HTTP_STATUS = 0;
+
+    // next_attempt_at das operações pausadas até um novo login (não estacionadas)
+    public static final long AWAITING_AUTH = Long.MAX_VALUE;
+
+    static final long BASE_DELAY_MS = 30 * 1000L;       // 30 segundos
+    static final long MAX_DELAY_MS = 6 * 60 * 60 * 1000L; // 6 horas
+
+    private final Random random;
+
+    public RetryPolicy() {
+        this(new Random());
+    }
+
+    RetryPolicy(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Decide o que fazer após a falha de número `attempt` (1 = primeira falha)
+     *
+     * @param retryAfterMs prazo pedido pelo servidor (Retry-After), ou 0
+     */
+    public Schedule onFailure(int attempt, int httpStatus, long retryAfterMs, long now) {
+        if (isPermanent(httpStatus)) {
+            return Schedule.parked();
+        }
+        if (attempt >= MAX_ATTEMPTS) {
+            return Schedule.parked();
+        }
+        long delay = Math.max(backoffDelay(attempt), Math.min(retryAfterMs, MAX_DELAY_MS));
+        return new Schedule(false, now + delay);
+    }
+
+    /**
+     * Backoff exponencial com "equal jitter": metade fixa, metade aleatória,
+     * para espalhar as retentativas sem nunca voltar imediatamente
+     */
+    long backoffDelay(int attempt) {
+        int exponent = Math.max(0, Math.min(attempt - 1, 20));
+        long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << exponent);
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * half);
+    }
+
+    /**
+     * Rejeições definitivas: 4xx que não dependem de tempo, de novo login ou de nova tentativa
+     */
+    public static boolean isPermanent(int httpStatus) {
+        if (httpStatus < 400 || httpStatus >= 500) {
+            return false;
+        }
+        return httpStatus != 408   // Request Timeout
+            && httpStatus != 425   // Too Early
+            && httpStatus != 429   // Too Many Requests
+            && !requiresReauth(httpStatus)
+            && !isAlreadyApplied(httpStatus);
+    }
+
+    /**
+     * Token expirado ou revogado: a operação volta quando o motorista fizer login de novo
+     */
+    public static boolean requiresReauth(int httpStatus) {
+        return httpStatus == 401 || httpStatus == 403;
+    }
+
+    /**
+     * Conflito na finalização: a coleta já está finalizada no servidor
+     */
+    public static boolean isAlreadyApplied(int httpStatus) {
+        return httpStatus == 409;
+    }
+
+    /**
+     * Próximo passo de uma operação que falhou
+     */
+    public static class Schedule {
+        public final boolean parked;
+        public final long nextAttemptAt;
+
+        Schedule(boolean parked, long nextAttemptAt) {
+            this.parked = parked;
+            this.nextAttemptAt = nextAttemptAt;
+        }
+
+        static Schedule parked() {
+            return new Schedule(true, Long.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.zylogi_motoristas.offline;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Chave de dia das coletas em cache (coluna scheduled_day)
+ * Dia em epoch-day (dias desde 1970-01-01) tirado dos 10 primeiros caracteres de scheduledDate,
+ * a mesma regra que MainViewModel.isScheduledForToday usa para filtrar a rota do dia
+ */
+public final class ScheduledDay {
+
+    public static final ZoneId ZONE = ZoneId.of("America/Sao_Paulo");
+
+    // Coleta sem data de agendamento (ou com data inválida); tratada como parte da rota do dia
+    public static final long UNSCHEDULED = -1;
+
+    private ScheduledDay() {
+    }
+
+    /**
+     * Converte scheduledDate ("yyyy-MM-dd" ou ISO com horário) em epoch-day
+     */
+    public static long of(String scheduledDate) {
+        if (scheduledDate == null || scheduledDate.trim().length() < 10) {
+            return UNSCHEDULED;
+        }
+        try {
+            return LocalDate.parse(scheduledDate.trim().substring(0, 10)).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return UNSCHEDULED;
+        }
+    }
+
+    /**
+     * Dia de hoje no fuso do Brasil
+     */
+    public static long today() {
+        return LocalDate.now(ZONE).toEpochDay();
+    }
+}
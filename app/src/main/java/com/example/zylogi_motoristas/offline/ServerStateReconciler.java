@@ -0,0 +1,75 @@
+package com.example.zylogi_motoristas.offline;
+
+import com.example.zylogi_motoristas.ApiService;
+import com.example.zylogi_motoristas.Pickup;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Consulta o estado da coleta no servidor antes de reenviar uma operação
+ * Depois de um timeout não dá para saber se a finalização chegou; se o servidor
+ * já mostra a coleta finalizada ou cancelada, o reenvio (e a foto) é dispensado
+ */
+public class ServerStateReconciler {
+
+    private static final long DEADLINE_SECONDS = 15;
+
+    public enum State {
+        ALREADY_FINALIZED, // Servidor já tem a coleta finalizada ou cancelada
+        PENDING,           // Ainda precisa ser finalizada
+        NOT_FOUND,         // Coleta não existe mais no servidor
+        UNKNOWN            // Não foi possível consultar; segue com o envio
+    }
+
+    private final ApiService apiService;
+
+    public ServerStateReconciler(ApiService apiService) {
+        this.apiService = apiService;
+    }
+
+    /**
+     * Bloqueante: deve ser chamado a partir de um Worker
+     */
+    public State check(PendingOperation operation) {
+        Call<Pickup> call = apiService.getPickupById(operation.getPickupId());
+        call.timeout().timeout(DEADLINE_SECONDS, TimeUnit.SECONDS);
+
+        Response<Pickup> response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            return State.UNKNOWN;
+        }
+
+        if (response.code() == 404) {
+            return State.NOT_FOUND;
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            return State.UNKNOWN;
+        }
+        return isFinal(response.body().getStatus()) ? State.ALREADY_FINALIZED : State.PENDING;
+    }
+
+    /**
+     * Status em que a coleta não aceita mais finalização
+     */
+    static boolean isFinal(String status) {
+        if (status == null) {
+            return false;
+        }
+        switch (status.toUpperCase(Locale.ROOT)) {
+            case "COMPLETED":
+            case "NOT_COMPLETED":
+            case "CANCELLED":
+            case "CANCELED":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.zylogi_motoristas.offline;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Porta única para disparar a sincronização
+ * - apenas um SyncWorker por vez (trabalho único com KEEP)
+ * - eventos de conectividade em rajada viram um único disparo (debounce)
+ * - pedidos que chegam durante uma sincronização viram uma única execução seguinte
+ * - retentativas agendadas (backoff) entram no mesmo trabalho único, com atraso; um pedido
+ *   imediato substitui a retentativa que ainda está esperando
+ *
+ * Todo o estado é manipulado na main thread, por onde também passa o observer do WorkManager
+ */
+public class SyncCoordinator {
+
+    private static final String TAG = "SyncCoordinator";
+    static final String SYNC_WORK_NAME = "offline_sync_work";
+    static final long CONNECTIVITY_DEBOUNCE_MS = 3000;
+    // Marca as execuções agendadas com atraso (retentativa por backoff)
+    private static final String DELAYED_TAG = "offline_sync_delayed";
+    // Trabalho de backoff separado usado por versões anteriores
+    private static final String LEGACY_BACKOFF_WORK_NAME = "backoff_sync_work";
+
+    private static volatile SyncCoordinator INSTANCE;
+
+    /**
+     * Recebe as mudanças de estado do trabalho de sincronização
+     */
+    public interface Listener {
+        void onSyncWorkStateChanged(WorkInfo workInfo);
+    }
+
+    private final WorkManager workManager;
+    private final OfflineRepository repository;
+    private final Handler mainHandler;
+    private final AtomicInteger suppressedTriggers = new AtomicInteger();
+    private final Runnable debouncedTrigger = this::onDebounceElapsed;
+
+    // Acessados apenas na main thread
+    private boolean running;
+    private boolean pendingNow;
+    private boolean pendingDelayed;
+    private boolean rerunRequested;
+    private boolean debouncePending;
+    private Map<UUID, WorkInfo.State> lastStates = new HashMap<>();
+    private Listener listener;
+
+    private SyncCoordinator(Context context) {
+        this.workManager = WorkManager.getInstance(context);
+        this.repository = OfflineRepository.getInstance(context);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+
+        // Retentativas agora passam pelo trabalho único; a fila antiga não pode rodar em paralelo
+        workManager.cancelUniqueWork(LEGACY_BACKOFF_WORK_NAME);
+
+        // Um único observer, registrado na main thread, para toda a vida do processo
+        mainHandler.post(() -> workManager.getWorkInfosForUniqueWorkLiveData(SYNC_WORK_NAME)
+            .observeForever(this::onWorkInfosChanged));
+    }
+
+    /**
+     * Obtém a instância singleton do coordenador
+     */
+    public static SyncCoordinator getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (SyncCoordinator.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SyncCoordinator(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void setListener(Listener listener) {
+        mainHandler.post(() -> this.listener = listener);
+    }
+
+    /**
+     * Pede uma sincronização imediata (salvamento offline, botão, inicialização)
+     * Pode ser chamado de qualquer thread
+     */
+    public void requestSync(String reason) {
+        mainHandler.post(() -> trigger(reason));
+    }
+
+    /**
+     * Agenda uma sincronização para daqui a delayMillis (API inalcançável, retentativa em backoff)
+     * Não faz nada se já houver uma sincronização rodando ou na fila; substitui uma retentativa
+     * agendada antes, pois o horário recém-calculado é o mais atual
+     */
+    public void requestDelayedSync(long delayMillis, String reason) {
+        mainHandler.post(() -> {
+            if (running || pendingNow) {
+                suppressedTriggers.incrementAndGet();
+                return;
+            }
+            pendingDelayed = true;
+            workManager.enqueueUniqueWork(SYNC_WORK_NAME, ExistingWorkPolicy.REPLACE, buildRequest(delayMillis));
+            Log.i(TAG, "Sincronização agendada em " + TimeUnit.MILLISECONDS.toSeconds(delayMillis) + "s (" + reason + ")");
+        });
+    }
+
+    /**
+     * Agenda a próxima execução a partir de um SyncWorker em andamento
+     * Encadeada (APPEND) no mesmo trabalho único: só começa depois que a execução atual termina
+     */
+    void scheduleFollowUp(long delayMillis) {
+        workManager.enqueueUniqueWork(SYNC_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, buildRequest(delayMillis));
+        Log.i(TAG, "Próxima tentativa agendada em " + TimeUnit.MILLISECONDS.toSeconds(delayMillis) + "s");
+    }
+
+    /**
+     * Conectividade restaurada: aguarda a rede estabilizar antes de disparar
+     * Novos eventos dentro da janela reiniciam a espera e contam como suprimidos
+     */
+    public void onConnectivityRestored() {
+        mainHandler.post(() -> {
+            if (debouncePending) {
+                suppressedTriggers.incrementAndGet();
+                mainHandler.removeCallbacks(debouncedTrigger);
+            }
+            debouncePending = true;
+            mainHandler.postDelayed(debouncedTrigger, CONNECTIVITY_DEBOUNCE_MS);
+        });
+    }
+
+    /**
+     * Conectividade perdida: descarta o disparo ainda em espera
+     */
+    public void onConnectivityLost() {
+        mainHandler.post(() -> {
+            if (debouncePending) {
+                debouncePending = false;
+                suppressedTriggers.incrementAndGet();
+                mainHandler.removeCallbacks(debouncedTrigger);
+            }
+        });
+    }
+
+    /**
+     * Quantos disparos foram absorvidos pelo debounce ou por uma sincronização em andamento
+     */
+    public int getSuppressedTriggerCount() {
+        return suppressedTriggers.get();
+    }
+
+    private void onDebounceElapsed() {
+        debouncePending = false;
+        // Falhas de rede não precisam esperar o backoff quando a conexão volta
+        repository.clearNetworkBackoff(new OfflineRepository.OperationCallback() {
+            @Override
+            public void onSuccess() {
+                requestSync("conectividade restaurada");
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Erro ao liberar backoff de rede: " + error);
+                requestSync("conectividade restaurada");
+            }
+        });
+    }
+
+    private void trigger(String reason) {
+        if (running) {
+            // Uma execução extra ao final cobre todos os pedidos que chegaram no meio
+            rerunRequested = true;
+            suppressedTriggers.incrementAndGet();
+            Log.d(TAG, "Sincronização em andamento - pedido agregado (" + reason + ")");
+            return;
+        }
+        if (pendingNow) {
+            suppressedTriggers.incrementAndGet();
+            Log.d(TAG, "Sincronização já na fila - pedido ignorado (" + reason + ")");
+            return;
+        }
+
+        enqueue(reason);
+    }
+
+    private void enqueue(String reason) {
+        // Uma retentativa ainda esperando o atraso é trocada pela execução imediata;
+        // KEEP nos demais casos: se já houver um trabalho na fila ou rodando, este pedido é ignorado
+        ExistingWorkPolicy policy = pendingDelayed ? ExistingWorkPolicy.REPLACE : ExistingWorkPolicy.KEEP;
+        pendingNow = true;
+        pendingDelayed = false;
+        workManager.enqueueUniqueWork(SYNC_WORK_NAME, policy, buildRequest(0));
+        Log.i(TAG, "Sincronização enfileirada (" + reason + "), disparos suprimidos até agora: "
+            + suppressedTriggers.get());
+    }
+
+    private static OneTimeWorkRequest buildRequest(long delayMillis) {
+        OneTimeWorkRequest.Builder builder = new OneTimeWorkRequest.Builder(SyncWorker.class)
+            .setConstraints(new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build())
+            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+            .addTag("offline_sync");
+        if (delayMillis > 0) {
+            builder.setInitialDelay(delayMillis, TimeUnit.MILLISECONDS).addTag(DELAYED_TAG);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Recalcula o estado a partir de todos os trabalhos da fila única
+     * (com retentativas encadeadas pode haver um rodando e outro esperando)
+     */
+    private void onWorkInfosChanged(List<WorkInfo> workInfos) {
+        if (workInfos == null) {
+            return;
+        }
+
+        boolean nowRunning = false;
+        boolean nowPending = false;
+        boolean nowDelayed = false;
+        Map<UUID, WorkInfo.State> states = new HashMap<>();
+        for (WorkInfo workInfo : workInfos) {
+            WorkInfo.State state = workInfo.getState();
+            boolean delayed = workInfo.getTags().contains(DELAYED_TAG);
+            if (state == WorkInfo.State.RUNNING) {
+                nowRunning = true;
+            } else if (!state.isFinished()) {
+                if (delayed) {
+                    nowDelayed = true;
+                } else {
+                    nowPending = true;
+                }
+            }
+
+            states.put(workInfo.getId(), state);
+            // Retentativa esperando o atraso não é uma sincronização na fila para a tela
+            boolean waitingRetry = delayed && !state.isFinished() && state != WorkInfo.State.RUNNING;
+            if (state != lastStates.get(workInfo.getId()) && !waitingRetry && listener != null) {
+                listener.onSyncWorkStateChanged(workInfo);
+            }
+        }
+        lastStates = states;
+        running = nowRunning;
+        pendingNow = nowPending;
+        pendingDelayed = nowDelayed;
+
+        if (!running && rerunRequested) {
+            rerunRequested = false;
+            if (!pendingNow) {
+                enqueue("pedidos agregados durante a sincronização anterior");
+            }
+        }
+    }
+}
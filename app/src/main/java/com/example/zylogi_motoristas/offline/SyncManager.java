@@ -6,6 +6,8 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.util.Log;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import androidx.work.*;
 import androidx.work.WorkManager;
 import androidx.work.PeriodicWorkRequest;
@@ -20,11 +22,18 @@ import java.util.ArrayList;
  * Gerenciador de sincronização que coordena WorkManager e conectividade
  * Agenda e executa sincronizações automáticas
  */
-public class SyncManager implements ConnectivityManager.ConnectivityListener {
+public class SyncManager implements ConnectivityManager.ConnectivityListener,
+        ConnectivityManager.NetworkQualityListener {
     
     private static final String TAG = "SyncManager";
-    private static final String SYNC_WORK_NAME = "offline_sync_work";
-    private static final String PERIODIC_SYNC_WORK_NAME = "periodic_sync_work";
+    private static final String PERIODIC_SYNC_WORK_NAME = "periodic_sync_trigger";
+    // Versão antiga que rodava o SyncWorker diretamente, em paralelo ao coordenador
+    private static final String LEGACY_PERIODIC_SYNC_WORK_NAME = "periodic_sync_work";
+    private static final String PRECOMPRESS_IDLE_WORK_NAME = "precompress_idle_work";
+    private static final String PRECOMPRESS_CHARGING_WORK_NAME = "precompress_charging_work";
+    
+    // Nova tentativa quando a API não respondeu à sondagem
+    private static final long UNREACHABLE_RETRY_MS = TimeUnit.MINUTES.toMillis(1);
     
     private static volatile SyncManager INSTANCE;
     
@@ -32,6 +41,9 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
     private final WorkManager workManager;
     private final ConnectivityManager connectivityManager;
     private final OfflineRepository repository;
+    private final SyncCoordinator syncCoordinator;
+    private final ReachabilityService reachability;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     private boolean isAutoSyncEnabled = true;
     private SyncStatusListener statusListener;
@@ -49,9 +61,15 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
         this.workManager = WorkManager.getInstance(context);
         this.connectivityManager = ConnectivityManager.getInstance(context);
         this.repository = OfflineRepository.getInstance(context);
+        this.syncCoordinator = SyncCoordinator.getInstance(context);
+        this.reachability = ReachabilityService.getInstance(context);
+        
+        // Estado do trabalho único de sincronização, observado uma única vez pelo coordenador
+        syncCoordinator.setListener(this::onSyncWorkStateChanged);
         
         // Registra listener de conectividade
         connectivityManager.addConnectivityListener(this);
+        connectivityManager.addNetworkQualityListener(this);
         
         // Registra BroadcastReceiver para ações de sincronização
         setupBroadcastReceiver();
@@ -104,8 +122,8 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
         Log.i(TAG, "Auto-sync " + (enabled ? "habilitado" : "desabilitado"));
         
         if (enabled && connectivityManager.isConnected()) {
-            // Se habilitou e tem conexão, agenda sincronização imediata
-            scheduleSyncWork(0);
+            // Se habilitou e tem conexão, pede sincronização imediata
+            syncCoordinator.requestSync("auto-sync habilitado");
         }
     }
     
@@ -121,51 +139,17 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
             return;
         }
         
-        // Cancela trabalhos pendentes e agenda novo imediatamente
-        workManager.cancelUniqueWork(SYNC_WORK_NAME);
-        scheduleSyncWork(0);
-    }
-    
-    /**
-     * Agenda trabalho de sincronização
-     */
-    private void scheduleSyncWork(long delayMinutes) {
-        if (!isAutoSyncEnabled && delayMinutes > 0) {
-            Log.d(TAG, "Auto-sync desabilitado - não agendando sincronização");
-            return;
-        }
-        
-        // Configura constraints
-        Constraints constraints = new Constraints.Builder()
-            .setRequiredNetworkType(NetworkType.CONNECTED)
-            .setRequiresBatteryNotLow(true)
-            .build();
-        
-        // Cria o trabalho
-        OneTimeWorkRequest syncWork = new OneTimeWorkRequest.Builder(SyncWorker.class)
-            .setConstraints(constraints)
-            .setInitialDelay(delayMinutes, TimeUnit.MINUTES)
-            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 15, TimeUnit.MINUTES)
-            .addTag("offline_sync")
-            .build();
-        
-        // Agenda o trabalho
-        workManager.enqueueUniqueWork(
-            SYNC_WORK_NAME,
-            ExistingWorkPolicy.REPLACE,
-            syncWork
-        );
-        
-        // Observa o progresso
-        observeWorkProgress(syncWork.getId());
-        
-        Log.i(TAG, "Sincronização agendada para " + delayMinutes + " minutos");
+        // Se já houver sincronização em andamento, o pedido vira uma execução logo em seguida
+        syncCoordinator.requestSync("manual");
     }
     
     /**
      * Agenda sincronização periódica
+     * O trabalho periódico só dispara o SyncCoordinator, que mantém uma única sincronização por vez
      */
     private void schedulePeriodicSync() {
+        workManager.cancelUniqueWork(LEGACY_PERIODIC_SYNC_WORK_NAME);
+        
         // Sincronização a cada 2 horas quando há conectividade
         Constraints constraints = new Constraints.Builder()
             .setRequiredNetworkType(NetworkType.CONNECTED)
@@ -173,9 +157,8 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
             .build();
         
         PeriodicWorkRequest periodicWork = new PeriodicWorkRequest.Builder(
-            SyncWorker.class, 2, TimeUnit.HOURS)
+            PeriodicSyncWorker.class, 2, TimeUnit.HOURS)
             .setConstraints(constraints)
-            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.MINUTES)
             .addTag("periodic_sync")
             .build();
         
@@ -189,58 +172,89 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
     }
     
     /**
-     * Observa o progresso do trabalho de sincronização
+     * Agenda a pré-compressão das fotos pendentes
+     * Dois trabalhos independentes: um roda com o aparelho ocioso, outro carregando;
+     * o que executar primeiro deixa as fotos prontas para o outro
      */
-    private void observeWorkProgress(java.util.UUID workId) {
-        workManager.getWorkInfoByIdLiveData(workId).observeForever(workInfo -> {
-            if (workInfo != null) {
-                WorkInfo.State state = workInfo.getState();
-                
-                switch (state) {
-                    case RUNNING:
-                        Log.d(TAG, "Sincronização em execução");
-                        notifyStatusListener(SyncStatus.RUNNING, null);
-                        break;
-                        
-                    case SUCCEEDED:
-                        Data outputData = workInfo.getOutputData();
-                        int total = outputData.getInt("total_operations", 0);
-                        int successful = outputData.getInt("successful_operations", 0);
-                        int failed = outputData.getInt("failed_operations", 0);
-                        
-                        String message = String.format("Sincronizadas %d de %d operações", successful, total);
-                        Log.i(TAG, "Sincronização concluída: " + message);
-                        notifyStatusListener(SyncStatus.SUCCESS, message);
-                        
-                        // Notifica os SyncListeners sobre a conclusão
-                        notifySyncCompleted(successful, failed);
-                        break;
-                        
-                    case FAILED:
-                        Log.w(TAG, "Sincronização falhou");
-                        notifyStatusListener(SyncStatus.FAILED, "Falha na sincronização");
-                        
-                        // Notifica os SyncListeners sobre a falha
-                        notifySyncFailed("Falha na sincronização");
-                        break;
-                        
-                    case CANCELLED:
-                        Log.i(TAG, "Sincronização cancelada");
-                        notifyStatusListener(SyncStatus.CANCELLED, "Sincronização cancelada");
-                        break;
-                        
-                    case ENQUEUED:
-                        Log.d(TAG, "Sincronização na fila");
-                        notifyStatusListener(SyncStatus.QUEUED, null);
-                        break;
-                        
-                    case BLOCKED:
-                        Log.d(TAG, "Sincronização bloqueada (aguardando constraints)");
-                        notifyStatusListener(SyncStatus.WAITING, "Aguardando conectividade");
-                        break;
-                }
+    public void schedulePrecompression() {
+        Constraints idleConstraints = new Constraints.Builder()
+            .setRequiresDeviceIdle(true)
+            .build();
+        Constraints chargingConstraints = new Constraints.Builder()
+            .setRequiresCharging(true)
+            .build();
+        
+        workManager.enqueueUniqueWork(
+            PRECOMPRESS_IDLE_WORK_NAME,
+            ExistingWorkPolicy.KEEP,
+            new OneTimeWorkRequest.Builder(PrecompressWorker.class)
+                .setConstraints(idleConstraints)
+                .addTag("precompress")
+                .build()
+        );
+        workManager.enqueueUniqueWork(
+            PRECOMPRESS_CHARGING_WORK_NAME,
+            ExistingWorkPolicy.KEEP,
+            new OneTimeWorkRequest.Builder(PrecompressWorker.class)
+                .setConstraints(chargingConstraints)
+                .addTag("precompress")
+                .build()
+        );
+        
+        Log.d(TAG, "Pré-compressão de fotos agendada (ocioso ou carregando)");
+    }
+    
+    /**
+     * Repassa aos listeners as mudanças de estado do trabalho de sincronização
+     */
+    private void onSyncWorkStateChanged(WorkInfo workInfo) {
+        if (workInfo != null) {
+            WorkInfo.State state = workInfo.getState();
+            
+            switch (state) {
+                case RUNNING:
+                    Log.d(TAG, "Sincronização em execução");
+                    notifyStatusListener(SyncStatus.RUNNING, null);
+                    break;
+                    
+                case SUCCEEDED:
+                    Data outputData = workInfo.getOutputData();
+                    int total = outputData.getInt("total_operations", 0);
+                    int successful = outputData.getInt("successful_operations", 0);
+                    int failed = outputData.getInt("failed_operations", 0);
+                    
+                    String message = String.format("Sincronizadas %d de %d operações", successful, total);
+                    Log.i(TAG, "Sincronização concluída: " + message);
+                    notifyStatusListener(SyncStatus.SUCCESS, message);
+                    
+                    // Notifica os SyncListeners sobre a conclusão
+                    notifySyncCompleted(successful, failed);
+                    break;
+                    
+                case FAILED:
+                    Log.w(TAG, "Sincronização falhou");
+                    notifyStatusListener(SyncStatus.FAILED, "Falha na sincronização");
+                    
+                    // Notifica os SyncListeners sobre a falha
+                    notifySyncFailed("Falha na sincronização");
+                    break;
+                    
+                case CANCELLED:
+                    Log.i(TAG, "Sincronização cancelada");
+                    notifyStatusListener(SyncStatus.CANCELLED, "Sincronização cancelada");
+                    break;
+                    
+                case ENQUEUED:
+                    Log.d(TAG, "Sincronização na fila");
+                    notifyStatusListener(SyncStatus.QUEUED, null);
+                    break;
+                    
+                case BLOCKED:
+                    Log.d(TAG, "Sincronização bloqueada (aguardando constraints)");
+                    notifyStatusListener(SyncStatus.WAITING, "Aguardando conectividade");
+                    break;
             }
-        });
+        }
     }
     
     /**
@@ -342,53 +356,24 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
     @Override
     public void onConnectivityChanged(boolean connected) {
         Log.i(TAG, "Conectividade mudou: " + connected);
-        if (connected && isAutoSyncEnabled) {
-            // Conectividade restaurada - reseta operações falhadas e verifica pendentes
-            repository.resetFailedOperations(new OfflineRepository.OperationCallback() {
-                @Override
-                public void onSuccess() {
-                    Log.i(TAG, "Operações falhadas resetadas - verificando operações pendentes");
-                    
-                    repository.getPendingOperationsCount(new OfflineRepository.CountCallback() {
-                        @Override
-                        public void onCount(int count) {
-                            if (count > 0) {
-                                Log.i(TAG, "Conectividade restaurada - iniciando sincronização de " + count + " operações pendentes");
-                                syncNow();
-                            } else {
-                                Log.d(TAG, "Conectividade restaurada - nenhuma operação pendente para sincronizar");
-                            }
-                        }
-                        
-                        @Override
-                        public void onError(String error) {
-                            Log.e(TAG, "Erro ao verificar operações pendentes: " + error);
-                        }
-                    });
-                }
-                
-                @Override
-                public void onError(String error) {
-                    Log.e(TAG, "Erro ao resetar operações falhadas: " + error);
-                    // Mesmo com erro no reset, tenta sincronizar
-                    repository.getPendingOperationsCount(new OfflineRepository.CountCallback() {
-                        @Override
-                        public void onCount(int count) {
-                            if (count > 0) {
-                                Log.i(TAG, "Conectividade restaurada - iniciando sincronização de " + count + " operações pendentes");
-                                syncNow();
-                            } else {
-                                Log.d(TAG, "Conectividade restaurada - nenhuma operação pendente para sincronizar");
-                            }
-                        }
-                        
-                        @Override
-                        public void onError(String error) {
-                            Log.e(TAG, "Erro ao verificar operações pendentes: " + error);
-                        }
-                    });
-                }
-            });
+        // O resultado da última sondagem da API era de outra rede
+        reachability.invalidate();
+        if (!connected) {
+            syncCoordinator.onConnectivityLost();
+        } else if (isAutoSyncEnabled) {
+            // Redes instáveis disparam vários eventos seguidos; o coordenador agrupa em um único disparo
+            // Operações estacionadas não são reativadas aqui, só pelo reset explícito
+            syncCoordinator.onConnectivityRestored();
+        }
+    }
+    
+    @Override
+    public void onNetworkQualityChanged(NetworkQualityClassifier.Quality quality, NetworkSnapshot snapshot) {
+        Log.i(TAG, "Qualidade da rede mudou: " + quality);
+        // Fotos adiadas em rede ruim podem seguir quando a rede melhora; estimativas de banda
+        // oscilam bastante, então passa pelo mesmo debounce da reconexão
+        if (isAutoSyncEnabled && quality.compareTo(NetworkQualityClassifier.Quality.POOR) > 0) {
+            syncCoordinator.onConnectivityRestored();
         }
     }
     
@@ -401,32 +386,60 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
             return;
         }
         
-        Log.i(TAG, "Iniciando sincronização imediata");
-        
-        // Inicia sincronização imediata usando WorkManager
-        OneTimeWorkRequest syncRequest = new OneTimeWorkRequest.Builder(SyncWorker.class)
-                .setConstraints(new Constraints.Builder()
-                        .setRequiredNetworkType(NetworkType.CONNECTED)
-                        .build())
-                .build();
-        
-        WorkManager.getInstance(context).enqueue(syncRequest);
-        
-        // Observa o progresso do trabalho
-        observeWorkProgress(syncRequest.getId());
-        
-        notifySyncStarted();
+        // Só drena a fila se a nossa API responde; rede local sem saída ou servidor fora
+        // ficam para a tentativa agendada
+        reachability.checkReachability(reachable -> mainHandler.post(() -> {
+            if (!reachable) {
+                Log.w(TAG, "API inalcançável - sincronização adiada");
+                syncCoordinator.requestDelayedSync(UNREACHABLE_RETRY_MS, "API inalcançável");
+                notifyStatusListener(SyncStatus.WAITING, "Servidor indisponível");
+                return;
+            }
+            
+            Log.i(TAG, "Iniciando sincronização imediata");
+            
+            // Trabalho único: nunca há dois SyncWorkers disparados daqui ao mesmo tempo
+            syncCoordinator.requestSync("syncNow");
+            
+            notifySyncStarted();
+        }));
+    }
+    
+    /**
+     * Quantos disparos de sincronização foram absorvidos (debounce ou sincronização em andamento)
+     */
+    public int getSuppressedSyncTriggerCount() {
+        return syncCoordinator.getSuppressedTriggerCount();
     }
     
     /**
      * Cancela todas as sincronizações pendentes
      */
     public void cancelAllSync() {
-        workManager.cancelUniqueWork(SYNC_WORK_NAME);
+        workManager.cancelUniqueWork(SyncCoordinator.SYNC_WORK_NAME);
         workManager.cancelAllWorkByTag("offline_sync");
         Log.i(TAG, "Todas as sincronizações canceladas");
     }
     
+    /**
+     * Chamado após um novo login: libera as operações pausadas por sessão expirada e sincroniza
+     */
+    public void onReauthenticated() {
+        repository.resumeAuthPausedOperations(new OfflineRepository.OperationCallback() {
+            @Override
+            public void onSuccess() {
+                if (isAutoSyncEnabled && connectivityManager.isConnected()) {
+                    syncCoordinator.requestSync("novo login");
+                }
+            }
+            
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Erro ao liberar operações após novo login: " + error);
+            }
+        });
+    }
+    
     /**
      * Deleta uma operação específica por ID
      */
@@ -450,6 +463,7 @@ public class SyncManager implements ConnectivityManager.ConnectivityListener {
      */
     public void cleanup() {
         connectivityManager.removeConnectivityListener(this);
+        connectivityManager.removeNetworkQualityListener(this);
         cancelAllSync();
         Log.i(TAG, "SyncManager limpo");
     }
@@ -0,0 +1,154 @@
+package com.example.zylogi_motoristas.offline;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escalonador da sincronização de operações pendentes
+ * - limite configurável de operações simultâneas
+ * - operações só com JSON passam na frente das que têm foto
+ * - número limitado de uploads de foto ao mesmo tempo, para não bloquear as atualizações pequenas
+ * - a própria thread do Worker é uma das "faixas" de execução; as demais são threads auxiliares
+ */
+public class SyncScheduler {
+
+    private static final String TAG = "SyncScheduler";
+
+    public static final int DEFAULT_CONCURRENCY = 2;
+    public static final int DEFAULT_MAX_CONCURRENT_PHOTOS = 1;
+
+    public enum Outcome {
+        SUCCESS,
+        FAILURE
+    }
+
+    /**
+     * Executa uma operação de forma síncrona na thread que a chamou
+     */
+    public interface OperationRunner {
+        Outcome run(PendingOperation operation);
+    }
+
+    /**
+     * Permite interromper o escalonamento quando o Worker é parado
+     */
+    public interface StopSignal {
+        boolean isStopped();
+    }
+
+    private final int concurrency;
+    private final int maxConcurrentPhotos;
+
+    public SyncScheduler(int concurrency, int maxConcurrentPhotos) {
+        this.concurrency = Math.max(1, concurrency);
+        this.maxConcurrentPhotos = Math.max(1, Math.min(maxConcurrentPhotos, this.concurrency));
+    }
+
+    /**
+     * Executa todas as operações respeitando prioridade e limites de concorrência
+     * Bloqueia até que todas terminem ou o sinal de parada seja acionado
+     */
+    public Summary run(List<PendingOperation> operations, OperationRunner runner, StopSignal stopSignal) {
+        List<PendingOperation> ordered = prioritize(operations);
+        ConcurrentLinkedQueue<PendingOperation> queue = new ConcurrentLinkedQueue<>(ordered);
+        Semaphore photoPermits = new Semaphore(maxConcurrentPhotos, true);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        Runnable lane = () -> {
+            PendingOperation operation;
+            while (!stopSignal.isStopped() && (operation = queue.poll()) != null) {
+                boolean photo = operation.hasAttachment();
+                if (photo) {
+                    photoPermits.acquireUninterruptibly();
+                }
+                try {
+                    Outcome outcome = runner.run(operation);
+                    if (outcome == Outcome.SUCCESS) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Erro inesperado na operação " + operation.getId(), e);
+                    failed.incrementAndGet();
+                } finally {
+                    if (photo) {
+                        photoPermits.release();
+                    }
+                }
+            }
+        };
+
+        int helpers = Math.min(concurrency, ordered.size()) - 1;
+        ExecutorService pool = helpers > 0 ? Executors.newFixedThreadPool(helpers) : null;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < helpers; i++) {
+            futures.add(pool.submit(lane));
+        }
+
+        try {
+            lane.run();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Escalonamento interrompido");
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Erro em faixa auxiliar de sincronização", e.getCause());
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+
+        Summary summary = new Summary(ordered.size(), succeeded.get(), failed.get());
+        Log.i(TAG, String.format("Escalonamento concluído - Total: %d, Sucesso: %d, Falha: %d, Não executadas: %d",
+            summary.total, summary.succeeded, summary.failed, summary.getSkipped()));
+        return summary;
+    }
+
+    /**
+     * Operações sem foto primeiro; dentro de cada grupo, as mais antigas primeiro
+     */
+    static List<PendingOperation> prioritize(List<PendingOperation> operations) {
+        List<PendingOperation> ordered = new ArrayList<>(operations);
+        Collections.sort(ordered, (a, b) -> {
+            if (a.hasAttachment() != b.hasAttachment()) {
+                return a.hasAttachment() ? 1 : -1;
+            }
+            return Long.compare(a.getCreatedAt(), b.getCreatedAt());
+        });
+        return ordered;
+    }
+
+    /**
+     * Resultado de uma execução do escalonador
+     */
+    public static class Summary {
+        public final int total;
+        public final int succeeded;
+        public final int failed;
+
+        Summary(int total, int succeeded, int failed) {
+            this.total = total;
+            this.succeeded = succeeded;
+            this.failed = failed;
+        }
+
+        public int getSkipped() {
+            return total - succeeded - failed;
+        }
+    }
+}
@@ -9,45 +9,100 @@ import androidx.work.Data;
 
 import com.example.zylogi_motoristas.ApiService;
 import com.example.zylogi_motoristas.RetrofitClient;
-import com.example.zylogi_motoristas.AuthSessionManager;
 import com.example.zylogi_motoristas.Pickup;
+import com.example.zylogi_motoristas.photo.UploadEncoder;
+import com.example.zylogi_motoristas.photo.UploadRendition;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import retrofit2.Call;
-import retrofit2.Callback;
 import retrofit2.Response;
 
 /**
  * Worker para sincronização de operações pendentes em background
  * Executa quando há conectividade disponível
+ *
+ * As operações são executadas de forma síncrona pelo SyncScheduler: concorrência
+ * limitada, operações sem foto primeiro e um prazo máximo para cada requisição.
+ * Quando há mais de uma operação sem foto, elas são enviadas juntas pelo BatchFinalizer
  */
 public class SyncWorker extends Worker {
     
     private static final String TAG = "SyncWorker";
-    private static final int MAX_SYNC_ATTEMPTS = 3;
-    private static final int SYNC_TIMEOUT_MINUTES = 10;
+    
+    // Parâmetros opcionais de entrada do Worker
+    public static final String KEY_CONCURRENCY = "sync_concurrency";
+    public static final String KEY_MAX_CONCURRENT_PHOTOS = "sync_max_concurrent_photos";
+    
+    // Prazos por operação
+    private static final long JSON_DEADLINE_SECONDS = 30;
+    private static final long PHOTO_BASE_DEADLINE_SECONDS = 60;
+    private static final long PHOTO_MAX_DEADLINE_SECONDS = 5 * 60;
+    private static final long MIN_UPLOAD_BYTES_PER_SECOND = 8 * 1024; // ~64 kbps, 3G fraco
+    
+    // Com fotos adiadas pela política de rede, reavalia a rede neste intervalo
+    private static final long POLICY_RECHECK_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    
+    // Reserva das operações por execução; renovada antes de cada envio individual
+    private static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    
+    private static final MediaType TEXT_PLAIN = MediaType.parse("text/plain");
+    
+    // Se o servidor não tem o endpoint de lote ou de upload retomável, não tenta de novo enquanto o processo viver
+    private static volatile boolean batchEndpointAvailable = true;
+    private static volatile boolean resumableEndpointAvailable = true;
     
     private OfflineRepository repository;
     private ApiService apiService;
-    private AuthSessionManager authManager;
+    private UploadEncoder uploadEncoder;
+    private BatchFinalizer batchFinalizer;
+    private ResumableUploader resumableUploader;
+    private RetryPolicy retryPolicy;
+    private ServerStateReconciler reconciler;
+    private UploadPolicy uploadPolicy;
+    private ThroughputMeter throughputMeter;
+    private String leaseOwner;
+    private volatile UploadRendition uploadRendition = UploadRendition.FULL;
+    // Servidor recusou o token nesta execução (401/403)
+    private volatile boolean authRejected;
     
     public SyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
         super(context, workerParams);
         repository = OfflineRepository.getInstance(context);
         apiService = RetrofitClient.getClient(context).create(ApiService.class);
+        uploadEncoder = UploadEncoder.getInstance(context);
+        batchFinalizer = new BatchFinalizer(apiService);
+        resumableUploader = new ResumableUploader(apiService);
+        retryPolicy = new RetryPolicy();
+        reconciler = new ServerStateReconciler(apiService);
+        uploadPolicy = new UploadPolicy();
+        throughputMeter = ThroughputMeter.getInstance();
     }
     
     @NonNull
     @Override
     public Result doWork() {
+        // A sincronização periódica pode coincidir com o trabalho único; as reservas por
+        // operação (leases) garantem que cada operação seja enviada por uma execução só
+        leaseOwner = UUID.randomUUID().toString();
+        try {
+            return syncPendingOperations();
+        } finally {
+            releaseLeases();
+        }
+    }
+    
+    private Result syncPendingOperations() {
         Log.i(TAG, "Iniciando sincronização de operações pendentes");
         
         try {
@@ -58,94 +113,100 @@ public class SyncWorker extends Worker {
                 return Result.retry();
             }
             
-            // Obtém operações pendentes
-            CountDownLatch latch = new CountDownLatch(1);
-            AtomicBoolean success = new AtomicBoolean(false);
-            AtomicInteger totalOperations = new AtomicInteger(0);
-            AtomicInteger successfulOperations = new AtomicInteger(0);
-            AtomicInteger failedOperations = new AtomicInteger(0);
+            // Rede validada não garante que a nossa API responda (resultado em cache por alguns segundos)
+            if (!ReachabilityService.getInstance(getApplicationContext()).isReachableSync()) {
+                Log.w(TAG, "API inalcançável - sincronização adiada");
+                return Result.retry();
+            }
             
-            repository.getRetryableOperations(new OfflineRepository.OperationListCallback() {
-                @Override
-                public void onSuccess(List<PendingOperation> operations) {
-                    totalOperations.set(operations.size());
-                    
-                    if (operations.isEmpty()) {
-                        Log.i(TAG, "Nenhuma operação pendente para sincronizar");
-                        success.set(true);
-                        latch.countDown();
-                        return;
-                    }
-                    
-                    Log.i(TAG, "Sincronizando " + operations.size() + " operações pendentes");
-                    
-                    // Sincroniza cada operação
-                    CountDownLatch operationsLatch = new CountDownLatch(operations.size());
-                    
-                    for (PendingOperation operation : operations) {
-                        syncOperation(operation, new SyncCallback() {
-                            @Override
-                            public void onSuccess() {
-                                successfulOperations.incrementAndGet();
-                                operationsLatch.countDown();
-                            }
-                            
-                            @Override
-                            public void onFailure(String error) {
-                                failedOperations.incrementAndGet();
-                                operationsLatch.countDown();
-                            }
-                        });
+            // Só as operações cujo backoff já venceu e que nenhuma outra execução reservou
+            List<PendingOperation> operations = repository.claimDueOperationsSync(
+                leaseOwner, System.currentTimeMillis(), LEASE_MILLIS);
+            if (operations.isEmpty()) {
+                Log.i(TAG, "Nenhuma operação pendente para sincronizar");
+                scheduleNextAttempt(false);
+                return Result.success(buildOutput(0, 0, 0));
+            }
+            
+            // Em rede ruim as fotos esperam, para não travar as atualizações de status
+            NetworkQualityClassifier.Quality quality = connectivityManager.getNetworkQuality();
+            boolean metered = connectivityManager.getNetworkSnapshot().metered;
+            UploadPolicy.Decision decision = uploadPolicy.decide(quality, oldestPhotoAge(operations));
+            uploadRendition = UploadRendition.forNetwork(quality, metered);
+            Log.i(TAG, "Rede " + quality + " - política de envio: " + decision + ", versão das fotos: " + uploadRendition);
+            if (decision == UploadPolicy.Decision.WAIT) {
+                scheduleNextAttempt(true);
+                return Result.success(buildOutput(0, 0, 0));
+            }
+            
+            // Operações sem foto vão juntas em uma única requisição de lote
+            List<PendingOperation> individual = new ArrayList<>();
+            List<PendingOperation> jsonOnly = new ArrayList<>();
+            int deferred = 0;
+            for (PendingOperation operation : operations) {
+                if (!operation.hasAttachment()) {
+                    jsonOnly.add(operation);
+                } else if (decision == UploadPolicy.Decision.STATUS_ONLY) {
+                    deferred++;
+                } else {
+                    individual.add(operation);
+                }
+            }
+            
+            Log.i(TAG, "Sincronizando " + (operations.size() - deferred) + " operações pendentes"
+                + (deferred > 0 ? " (" + deferred + " fotos adiadas)" : ""));
+            
+            int succeeded = 0;
+            int failed = 0;
+            if (batchEndpointAvailable && jsonOnly.size() > 1) {
+                BatchFinalizer.BatchResult batch = batchFinalizer.finalizeAll(jsonOnly);
+                // O lote pode levar alguns minutos; as operações restantes mantêm a reserva
+                repository.renewLeasesSync(leaseOwner, LEASE_MILLIS);
+                for (BatchFinalizer.ItemOutcome outcome : batch.outcomes) {
+                    if (outcome.success) {
+                        removeOperation(outcome.operation);
+                        succeeded++;
+                    } else if (handleSyncFailure(outcome.operation, outcome.error, outcome.httpStatus, 0)
+                            == SyncScheduler.Outcome.SUCCESS) {
+                        succeeded++;
+                    } else {
+                        failed++;
                     }
-                    
-                    // Aguarda todas as operações terminarem
-                    new Thread(() -> {
-                        try {
-                            operationsLatch.await(SYNC_TIMEOUT_MINUTES, TimeUnit.MINUTES);
-                            
-                            // Considera sucesso se pelo menos 50% das operações foram sincronizadas
-                            boolean syncSuccess = successfulOperations.get() >= (totalOperations.get() / 2);
-                            success.set(syncSuccess);
-                            
-                            Log.i(TAG, String.format("Sincronização concluída - Total: %d, Sucesso: %d, Falha: %d",
-                                totalOperations.get(), successfulOperations.get(), failedOperations.get()));
-                            
-                        } catch (InterruptedException e) {
-                            Log.e(TAG, "Timeout na sincronização", e);
-                            success.set(false);
-                        } finally {
-                            latch.countDown();
-                        }
-                    }).start();
                 }
-                
-                @Override
-                public void onError(String error) {
-                    Log.e(TAG, "Erro ao obter operações pendentes: " + error);
-                    success.set(false);
-                    latch.countDown();
+                if (!batch.supported) {
+                    Log.w(TAG, "Servidor sem finalização em lote - usando envio individual");
+                    batchEndpointAvailable = false;
                 }
-            });
+                individual.addAll(batch.notSent);
+                Log.i(TAG, String.format("Lote concluído - Sucesso: %d, Falha: %d, Enviadas individualmente: %d",
+                    succeeded, failed, batch.notSent.size()));
+            } else {
+                individual.addAll(jsonOnly);
+            }
             
-            // Aguarda a sincronização terminar
-            latch.await(SYNC_TIMEOUT_MINUTES + 1, TimeUnit.MINUTES);
+            SyncScheduler scheduler = new SyncScheduler(
+                getInputData().getInt(KEY_CONCURRENCY, SyncScheduler.DEFAULT_CONCURRENCY),
+                getInputData().getInt(KEY_MAX_CONCURRENT_PHOTOS, SyncScheduler.DEFAULT_MAX_CONCURRENT_PHOTOS));
+            // Com a sessão expirada as demais operações falhariam igual: ficam para depois do login
+            SyncScheduler.Summary summary = scheduler.run(individual, this::syncOperation,
+                () -> isStopped() || authRejected);
+            succeeded += summary.succeeded;
+            failed += summary.failed;
+            int total = operations.size() - deferred;
             
-            if (success.get()) {
-                Log.i(TAG, "Sincronização concluída com sucesso");
-                
-                // Retorna dados sobre a sincronização
-                Data outputData = new Data.Builder()
-                    .putInt("total_operations", totalOperations.get())
-                    .putInt("successful_operations", successfulOperations.get())
-                    .putInt("failed_operations", failedOperations.get())
-                    .build();
-                
-                return Result.success(outputData);
-            } else {
-                Log.w(TAG, "Sincronização falhou - tentando novamente mais tarde");
+            Log.i(TAG, String.format("Sincronização concluída - Total: %d, Sucesso: %d, Falha: %d",
+                total, succeeded, failed));
+            
+            if (isStopped()) {
+                Log.w(TAG, "Sincronização interrompida - restante fica para a próxima execução");
                 return Result.retry();
             }
             
+            // As falhas já têm retentativa agendada por operação (RetryPolicy), então
+            // o trabalho em si não precisa voltar pelo backoff do WorkManager
+            scheduleNextAttempt(deferred > 0);
+            return Result.success(buildOutput(total, succeeded, failed));
+            
         } catch (Exception e) {
             Log.e(TAG, "Erro durante sincronização", e);
             return Result.failure();
@@ -153,289 +214,359 @@ public class SyncWorker extends Worker {
     }
     
     /**
-     * Sincroniza uma operação específica
+     * Idade da foto pendente mais antiga entre as operações (0 se não há fotos)
      */
-    private void syncOperation(PendingOperation operation, SyncCallback callback) {
-        try {
-            Log.d(TAG, "Sincronizando operação: " + operation.toString());
-            
-            // Prepara os dados para envio
-            if (operation.getDriverAttachmentBase64() != null && 
-                !operation.getDriverAttachmentBase64().isEmpty()) {
-                // Operação com foto - usa multipart
-                syncOperationWithPhoto(operation, callback);
-            } else {
-                // Operação sem foto - usa JSON
-                syncOperationWithoutPhoto(operation, callback);
+    private static long oldestPhotoAge(List<PendingOperation> operations) {
+        long now = System.currentTimeMillis();
+        long oldest = 0;
+        for (PendingOperation operation : operations) {
+            if (operation.hasAttachment()) {
+                oldest = Math.max(oldest, now - operation.getCreatedAt());
             }
-            
+        }
+        return oldest;
+    }
+    
+    /**
+     * Libera as operações que não foram removidas, para a próxima execução não esperar a reserva expirar
+     */
+    private void releaseLeases() {
+        try {
+            repository.releaseLeasesSync(leaseOwner);
         } catch (Exception e) {
-            Log.e(TAG, "Erro ao sincronizar operação " + operation.getId(), e);
-            markOperationAsFailed(operation, e.getMessage());
-            callback.onFailure(e.getMessage());
+            Log.e(TAG, "Erro ao liberar reservas - expiram em " + TimeUnit.MILLISECONDS.toMinutes(LEASE_MILLIS) + " min", e);
+        }
+    }
+    
+    /**
+     * Retorna dados sobre a sincronização
+     */
+    private Data buildOutput(int total, int successful, int failed) {
+        return new Data.Builder()
+            .putInt("total_operations", total)
+            .putInt("successful_operations", successful)
+            .putInt("failed_operations", failed)
+            .build();
+    }
+    
+    /**
+     * Sincroniza uma operação específica, bloqueando até a resposta ou o prazo
+     */
+    private SyncScheduler.Outcome syncOperation(PendingOperation operation) {
+        Log.d(TAG, "Sincronizando operação: " + operation.toString());
+        
+        if (!repository.renewLeaseSync(operation.getId(), leaseOwner, LEASE_MILLIS)) {
+            // A reserva expirou e outra execução assumiu a operação (ou ela já foi removida)
+            Log.w(TAG, "Reserva perdida - operação " + operation.getId() + " ignorada nesta execução");
+            return SyncScheduler.Outcome.FAILURE;
+        }
+        
+        if (operation.hasAttachment()) {
+            // Operação com foto - usa multipart
+            return syncOperationWithPhoto(operation);
+        } else {
+            // Operação sem foto - usa JSON
+            return syncOperationWithoutPhoto(operation);
         }
     }
     
     /**
      * Sincroniza operação com foto usando multipart
      */
-    private void syncOperationWithPhoto(PendingOperation operation, SyncCallback callback) {
+    private SyncScheduler.Outcome syncOperationWithPhoto(PendingOperation operation) {
+        // Antes de gastar a rede com a foto, confere se o servidor já tem a coleta finalizada
+        switch (reconciler.check(operation)) {
+            case ALREADY_FINALIZED:
+                Log.i(TAG, "Coleta já finalizada no servidor - descartando envio da operação " + operation.getId());
+                removeOperation(operation);
+                return SyncScheduler.Outcome.SUCCESS;
+            case NOT_FOUND:
+                handleSyncFailure(operation, "Coleta não encontrada no servidor", 404, 0);
+                return SyncScheduler.Outcome.FAILURE;
+            default:
+                break;
+        }
+        
+        UploadEncoder.EncodedUpload encoded;
         try {
-            // Converte Base64 para bytes
-            String base64Data = operation.getDriverAttachmentBase64();
-            if (base64Data.startsWith("data:image/")) {
-                base64Data = base64Data.substring(base64Data.indexOf(",") + 1);
+            // A foto é enviada direto do arquivo, sem carregá-la na memória
+            File imageFile = repository.getAttachmentStore().getFile(operation.getAttachmentPath());
+            if (imageFile == null || !imageFile.isFile()) {
+                throw new IOException("Anexo não encontrado: " + operation.getAttachmentPath());
             }
             
-            byte[] imageBytes = android.util.Base64.decode(base64Data, android.util.Base64.NO_WRAP);
-            
-            // Cria o MultipartBody.Part
-            RequestBody imageBody = RequestBody.create(MediaType.parse("image/jpeg"), imageBytes);
-            MultipartBody.Part imagePart = MultipartBody.Part.createFormData(
-                "driverAttachmentUrl", "image.jpg", imageBody);
-            
-            // Prepara outros parâmetros
-            RequestBody pickupIdBody = RequestBody.create(MediaType.parse("text/plain"), operation.getPickupId());
-            RequestBody statusBody = RequestBody.create(MediaType.parse("text/plain"), operation.getOperationType());
-            RequestBody observationBody = operation.getObservationDriver() != null ? 
-                RequestBody.create(MediaType.parse("text/plain"), operation.getObservationDriver()) : null;
-            
-            // OccurrenceId: só envia se não estiver vazio e for um UUID válido
-            RequestBody occurrenceIdBody = null;
-            if (operation.getOccurrenceId() != null && !operation.getOccurrenceId().trim().isEmpty()) {
-                occurrenceIdBody = RequestBody.create(MediaType.parse("text/plain"), operation.getOccurrenceId());
+            // Upload retomável em andamento continua com o mesmo arquivo, mesmo que a rede tenha mudado
+            encoded = operation.getUploadId() != null
+                ? uploadEncoder.findEncoded(imageFile, operation.getAttachmentHash(), operation.getUploadLength())
+                : null;
+            if (encoded == null) {
+                // Mesmo codificador usado no envio online; a versão fica em cache para as próximas tentativas
+                encoded = uploadEncoder.encode(imageFile, operation.getAttachmentHash(), uploadRendition);
             }
-            
-            RequestBody packagesBody = operation.getDriverNumberPackages() != null ? 
-                RequestBody.create(MediaType.parse("text/plain"), operation.getDriverNumberPackages().toString()) : null;
-            
-            // CompletionDate: converte timestamp para ISO 8601
-            RequestBody completionDateBody = null;
-            if (operation.getCompletionDate() != null) {
-                try {
-                    long timestamp = Long.parseLong(operation.getCompletionDate());
-                    java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-                    sdf.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
-                    String isoDate = sdf.format(new java.util.Date(timestamp));
-                    completionDateBody = RequestBody.create(MediaType.parse("text/plain"), isoDate);
-                } catch (NumberFormatException e) {
-                    Log.w(TAG, "Formato de data inválido: " + operation.getCompletionDate());
-                    // Se já estiver em formato ISO, usa como está
-                    completionDateBody = RequestBody.create(MediaType.parse("text/plain"), operation.getCompletionDate());
-                }
-            }
-            
-            // Faz a chamada da API
-            Call<Pickup> call = apiService.finalizePickupWithPhoto(
-                operation.getPickupId(), statusBody, observationBody, occurrenceIdBody, 
-                completionDateBody, packagesBody, imagePart);
-            
-            call.enqueue(new Callback<Pickup>() {
-                @Override
-                public void onResponse(Call<Pickup> call, Response<Pickup> response) {
-                    if (response.isSuccessful()) {
-                        Log.i(TAG, "Operação com foto sincronizada com sucesso: " + operation.getId());
-                        removeOperation(operation);
-                        callback.onSuccess();
-                    } else {
-                        String errorBody = "";
-                        try {
-                            if (response.errorBody() != null) {
-                                errorBody = response.errorBody().string();
-                            }
-                        } catch (Exception e) {
-                            Log.w(TAG, "Erro ao ler corpo da resposta de erro", e);
-                        }
-                        
-                        String error = String.format("Erro HTTP: %d: %s. Corpo: %s", 
-                            response.code(), response.message(), errorBody);
-                        Log.w(TAG, "Falha na sincronização com foto: " + error);
-                        
-                        // Log detalhado dos dados enviados para debug
-                        Log.d(TAG, String.format("Dados enviados - PickupId: %s, Status: %s, Observação: %s, OccurrenceId: %s, Packages: %s, CompletionDate: %s",
-                            operation.getPickupId(), operation.getOperationType(), 
-                            operation.getObservationDriver(), operation.getOccurrenceId(),
-                            operation.getDriverNumberPackages(), operation.getCompletionDate()));
-                        
-                        handleSyncFailure(operation, error);
-                        callback.onFailure(error);
-                    }
-                }
-                
-                @Override
-                public void onFailure(Call<Pickup> call, Throwable t) {
-                    String error = "Erro de rede: " + t.getMessage();
-                    Log.w(TAG, "Falha na sincronização com foto: " + error);
-                    handleSyncFailure(operation, error);
-                    callback.onFailure(error);
-                }
-            });
-            
         } catch (Exception e) {
             String error = "Erro ao processar foto: " + e.getMessage();
             Log.e(TAG, error, e);
-            markOperationAsFailed(operation, error);
-            callback.onFailure(error);
+            handleSyncFailure(operation, error, RetryPolicy.NO_HTTP_STATUS, 0);
+            return SyncScheduler.Outcome.FAILURE;
         }
+        
+        if (resumableEndpointAvailable) {
+            try {
+                return syncOperationWithResumableUpload(operation, encoded);
+            } catch (ResumableUploader.UnsupportedException e) {
+                Log.w(TAG, "Servidor sem upload retomável - usando multipart: " + e.getMessage());
+                resumableEndpointAvailable = false;
+            }
+        }
+        
+        return syncOperationWithMultipart(operation, encoded);
     }
     
     /**
-     * Sincroniza operação sem foto usando JSON
+     * Envia a foto em trechos, retomando do último offset confirmado, e depois
+     * finaliza a coleta referenciando o upload concluído
      */
-    private void syncOperationWithoutPhoto(PendingOperation operation, SyncCallback callback) {
+    private SyncScheduler.Outcome syncOperationWithResumableUpload(PendingOperation operation,
+                                                                   UploadEncoder.EncodedUpload encoded)
+            throws ResumableUploader.UnsupportedException {
+        String uploadId;
         try {
-            // Criar Map com todos os dados da operação
-            java.util.Map<String, Object> updates = new java.util.HashMap<>();
-            updates.put("status", operation.getOperationType());
-            
-            // Adicionar data de finalização se disponível (convertendo para ISO 8601)
-            if (operation.getCompletionDate() != null) {
-                try {
-                    long timestamp = Long.parseLong(operation.getCompletionDate());
-                    java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-                    sdf.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
-                    String isoDate = sdf.format(new java.util.Date(timestamp));
-                    updates.put("completionDate", isoDate);
-                } catch (NumberFormatException e) {
-                    Log.w(TAG, "Formato de data inválido: " + operation.getCompletionDate());
-                    // Se já estiver em formato ISO, usa como está
-                    updates.put("completionDate", operation.getCompletionDate());
-                }
-            }
-            
-            // Adicionar observação do motorista se disponível
-            if (operation.getObservationDriver() != null && !operation.getObservationDriver().trim().isEmpty()) {
-                updates.put("observationDriver", operation.getObservationDriver());
+            if (operation.getUploadId() != null) {
+                Log.d(TAG, String.format("Retomando upload da operação %d a partir de %d/%d bytes",
+                    operation.getId(), operation.getUploadOffset(), operation.getUploadLength()));
             }
-            
-            // Adicionar ID da ocorrência se disponível (só se não estiver vazio)
-            if (operation.getOccurrenceId() != null && !operation.getOccurrenceId().trim().isEmpty()) {
-                updates.put("occurrenceId", operation.getOccurrenceId());
+            uploadId = resumableUploader.upload(encoded.file, encoded.mimeType,
+                operation.getUploadId(), operation.getUploadLength(),
+                new MeteredProgressStore(operation.getId(), operation.getUploadOffset()));
+        } catch (ResumableUploader.UnsupportedException e) {
+            throw e;
+        } catch (IOException e) {
+            String error = e instanceof InterruptedIOException
+                ? "Upload interrompido por prazo esgotado"
+                : "Upload interrompido: " + e.getMessage();
+            Log.w(TAG, "Falha no upload retomável: " + error);
+            handleSyncFailure(operation, error, RetryPolicy.NO_HTTP_STATUS, 0);
+            return SyncScheduler.Outcome.FAILURE;
+        }
+        
+        Map<String, Object> updates = FinalizePayload.toUpdates(operation);
+        updates.put("driverAttachmentUploadId", uploadId);
+        Call<Pickup> call = apiService.finalizePickup(operation.getPickupId(), operation.getIdempotencyKey(), updates);
+        return execute(operation, call, JSON_DEADLINE_SECONDS, "com foto (upload retomável)");
+    }
+    
+    /**
+     * Envia a foto e os campos em uma única requisição multipart
+     */
+    private SyncScheduler.Outcome syncOperationWithMultipart(PendingOperation operation,
+                                                         UploadEncoder.EncodedUpload encoded) {
+        // Cria o MultipartBody.Part
+        RequestBody imageBody = new FileStreamingRequestBody(MediaType.parse(encoded.mimeType), encoded.file);
+        MultipartBody.Part imagePart = MultipartBody.Part.createFormData(
+            "driverAttachmentUrl", encoded.fileName, imageBody);
+        
+        // Prepara outros parâmetros
+        RequestBody statusBody = RequestBody.create(TEXT_PLAIN, operation.getOperationType());
+        RequestBody observationBody = operation.getObservationDriver() != null ? 
+            RequestBody.create(TEXT_PLAIN, operation.getObservationDriver()) : null;
+        
+        // OccurrenceId: só envia se não estiver vazio e for um UUID válido
+        RequestBody occurrenceIdBody = null;
+        if (operation.getOccurrenceId() != null && !operation.getOccurrenceId().trim().isEmpty()) {
+            occurrenceIdBody = RequestBody.create(TEXT_PLAIN, operation.getOccurrenceId());
+        }
+        
+        RequestBody packagesBody = operation.getDriverNumberPackages() != null ? 
+            RequestBody.create(TEXT_PLAIN, operation.getDriverNumberPackages().toString()) : null;
+        
+        String completionDate = FinalizePayload.formatCompletionDate(operation.getCompletionDate());
+        RequestBody completionDateBody = completionDate != null ?
+            RequestBody.create(TEXT_PLAIN, completionDate) : null;
+        
+        Call<Pickup> call = apiService.finalizePickupWithPhoto(
+            operation.getPickupId(), operation.getIdempotencyKey(), statusBody, observationBody, occurrenceIdBody, 
+            completionDateBody, packagesBody, imagePart);
+        
+        // Prazo proporcional ao tamanho do envio, com piso e teto
+        long deadlineSeconds = Math.min(PHOTO_MAX_DEADLINE_SECONDS,
+            PHOTO_BASE_DEADLINE_SECONDS + encoded.file.length() / MIN_UPLOAD_BYTES_PER_SECOND);
+        
+        long startedAt = System.nanoTime();
+        SyncScheduler.Outcome outcome = execute(operation, call, deadlineSeconds, "com foto");
+        if (outcome == SyncScheduler.Outcome.SUCCESS) {
+            throughputMeter.record(encoded.file.length(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), System.currentTimeMillis());
+        }
+        return outcome;
+    }
+    
+    /**
+     * Sincroniza operação sem foto usando JSON
+     */
+    private SyncScheduler.Outcome syncOperationWithoutPhoto(PendingOperation operation) {
+        Map<String, Object> updates = FinalizePayload.toUpdates(operation);
+        
+        Log.d(TAG, "Sincronizando operação sem foto: " + operation.getPickupId() + " com status: " + operation.getOperationType());
+        
+        Call<Pickup> call = apiService.finalizePickup(operation.getPickupId(), operation.getIdempotencyKey(), updates);
+        return execute(operation, call, JSON_DEADLINE_SECONDS, "sem foto");
+    }
+    
+    /**
+     * Executa a chamada na thread atual com prazo total (conexão, envio e resposta)
+     */
+    private SyncScheduler.Outcome execute(PendingOperation operation, Call<Pickup> call, long deadlineSeconds, String kind) {
+        call.timeout().timeout(deadlineSeconds, TimeUnit.SECONDS);
+        
+        try {
+            Response<Pickup> response = call.execute();
+            if (response.isSuccessful()) {
+                Log.i(TAG, "Operação " + kind + " sincronizada com sucesso: " + operation.getId());
+                removeOperation(operation);
+                return SyncScheduler.Outcome.SUCCESS;
             }
             
-            // Adicionar número de pacotes se disponível
-            if (operation.getDriverNumberPackages() != null) {
-                updates.put("driverNumberPackages", operation.getDriverNumberPackages());
+            String errorBody = "";
+            try {
+                if (response.errorBody() != null) {
+                    errorBody = response.errorBody().string();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Erro ao ler corpo da resposta de erro", e);
             }
             
-            Log.d(TAG, "Sincronizando operação sem foto: " + operation.getPickupId() + " com status: " + operation.getOperationType());
+            String error = String.format("Erro HTTP: %d: %s. Corpo: %s", 
+                response.code(), response.message(), errorBody);
+            Log.w(TAG, "Falha na sincronização " + kind + ": " + error);
             
-            // Fazer chamada da API
-            retrofit2.Call<com.example.zylogi_motoristas.Pickup> call = apiService.finalizePickup(operation.getPickupId(), updates);
+            // Log detalhado dos dados enviados para debug
+            Log.d(TAG, String.format("Dados enviados - PickupId: %s, Status: %s, Observação: %s, OccurrenceId: %s, Packages: %s, CompletionDate: %s",
+                operation.getPickupId(), operation.getOperationType(), 
+                operation.getObservationDriver(), operation.getOccurrenceId(),
+                operation.getDriverNumberPackages(), operation.getCompletionDate()));
             
-            call.enqueue(new retrofit2.Callback<com.example.zylogi_motoristas.Pickup>() {
-                @Override
-                public void onResponse(retrofit2.Call<com.example.zylogi_motoristas.Pickup> call, retrofit2.Response<com.example.zylogi_motoristas.Pickup> response) {
-                    if (response.isSuccessful()) {
-                        Log.i(TAG, "Operação sem foto sincronizada com sucesso: " + operation.getId());
-                        removeOperation(operation);
-                        callback.onSuccess();
-                    } else {
-                        String errorBody = "";
-                        try {
-                            if (response.errorBody() != null) {
-                                errorBody = response.errorBody().string();
-                            }
-                        } catch (Exception e) {
-                            Log.w(TAG, "Erro ao ler corpo da resposta de erro", e);
-                        }
-                        
-                        String error = String.format("Erro HTTP: %d: %s. Corpo: %s", 
-                            response.code(), response.message(), errorBody);
-                        Log.w(TAG, "Falha na sincronização sem foto: " + error);
-                        
-                        // Log detalhado dos dados enviados para debug
-                        Log.d(TAG, String.format("Dados enviados - PickupId: %s, Updates: %s",
-                            operation.getPickupId(), updates.toString()));
-                        
-                        handleSyncFailure(operation, error);
-                        callback.onFailure(error);
-                    }
-                }
-                
-                @Override
-                public void onFailure(retrofit2.Call<com.example.zylogi_motoristas.Pickup> call, Throwable t) {
-                    String error = "Erro de rede: " + t.getMessage();
-                    Log.w(TAG, "Falha na sincronização sem foto: " + error);
-                    handleSyncFailure(operation, error);
-                    callback.onFailure(error);
-                }
-            });
+            return handleSyncFailure(operation, error, response.code(), parseRetryAfter(response.headers().get("Retry-After")));
             
-        } catch (Exception e) {
-            String error = "Erro ao processar operação sem foto: " + e.getMessage();
-            Log.e(TAG, error, e);
-            markOperationAsFailed(operation, error);
-            callback.onFailure(error);
+        } catch (IOException e) {
+            // O OkHttp sinaliza o estouro do prazo com InterruptedIOException
+            String error = e instanceof InterruptedIOException
+                ? "Prazo de " + deadlineSeconds + "s esgotado"
+                : "Erro de rede: " + e.getMessage();
+            Log.w(TAG, "Falha na sincronização " + kind + ": " + error);
+            handleSyncFailure(operation, error, RetryPolicy.NO_HTTP_STATUS, 0);
         }
+        return SyncScheduler.Outcome.FAILURE;
     }
     
     /**
      * Remove operação após sincronização bem-sucedida
      */
     private void removeOperation(PendingOperation operation) {
-        repository.removeOperation(operation.getId(), new OfflineRepository.OperationCallback() {
-            @Override
-            public void onSuccess() {
-                Log.d(TAG, "Operação removida do banco local: " + operation.getId());
-            }
-            
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "Erro ao remover operação do banco: " + error);
+        try {
+            repository.removeOperationSync(operation.getId());
+            Log.d(TAG, "Operação removida do banco local: " + operation.getId());
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao remover operação do banco: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Trata falhas de sincronização: a RetryPolicy decide entre backoff e estacionar
+     * 409 conta como sucesso (já aplicada no servidor); 401/403 pausam a operação até um novo login
+     */
+    private SyncScheduler.Outcome handleSyncFailure(PendingOperation operation, String error, int httpStatus, long retryAfterMs) {
+        if (RetryPolicy.isAlreadyApplied(httpStatus)) {
+            Log.i(TAG, "Coleta já finalizada no servidor (HTTP " + httpStatus + ") - descartando operação " + operation.getId());
+            removeOperation(operation);
+            return SyncScheduler.Outcome.SUCCESS;
+        }
+        
+        if (RetryPolicy.requiresReauth(httpStatus)) {
+            authRejected = true;
+            try {
+                repository.pauseForAuthSync(operation.getId(), error, httpStatus);
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao pausar operação: " + e.getMessage());
             }
-        });
+            return SyncScheduler.Outcome.FAILURE;
+        }
+        
+        int attempt = operation.getRetryCount() + 1;
+        RetryPolicy.Schedule schedule = retryPolicy.onFailure(attempt, httpStatus, retryAfterMs, System.currentTimeMillis());
+        
+        if (schedule.parked) {
+            Log.e(TAG, String.format("Operação %d estacionada após %d tentativa(s) (HTTP %d): %s", 
+                operation.getId(), attempt, httpStatus, error));
+        } else {
+            Log.w(TAG, String.format("Falha na sincronização (tentativa %d/%d, próxima em %ds): %s", 
+                attempt, RetryPolicy.MAX_ATTEMPTS,
+                (schedule.nextAttemptAt - System.currentTimeMillis()) / 1000, error));
+        }
+        
+        try {
+            repository.recordSyncFailureSync(operation.getId(), error, httpStatus, schedule);
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao registrar falha da operação: " + e.getMessage());
+        }
+        return SyncScheduler.Outcome.FAILURE;
     }
     
     /**
-     * Marca operação como falhada
+     * Agenda uma execução para quando a próxima operação em backoff vencer
      */
-    private void markOperationAsFailed(PendingOperation operation, String error) {
-        repository.markOperationAsFailed(operation.getId(), error, new OfflineRepository.OperationCallback() {
-            @Override
-            public void onSuccess() {
-                Log.d(TAG, "Operação marcada como falhada: " + operation.getId());
+    private void scheduleNextAttempt(boolean waitingForNetwork) {
+        try {
+            Long nextAttemptAt = repository.getNextAttemptAtSync();
+            long delay = nextAttemptAt != null ? nextAttemptAt - System.currentTimeMillis() : 0;
+            if (waitingForNetwork && (delay <= 0 || delay > POLICY_RECHECK_MILLIS)) {
+                // Operações adiadas continuam vencidas; volta a avaliar a rede daqui a pouco
+                delay = POLICY_RECHECK_MILLIS;
             }
-            
-            @Override
-            public void onError(String err) {
-                Log.e(TAG, "Erro ao marcar operação como falhada: " + err);
+            if (delay > 0) {
+                SyncCoordinator.getInstance(getApplicationContext()).scheduleFollowUp(delay);
             }
-        });
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao agendar próxima tentativa: " + e.getMessage());
+        }
     }
     
     /**
-     * Trata falhas de sincronização com estratégia de retry
+     * Retry-After em segundos (a forma de data HTTP é ignorada)
      */
-    private void handleSyncFailure(PendingOperation operation, String error) {
-        int currentAttempts = operation.getRetryCount() + 1;
-        
-        if (currentAttempts < MAX_SYNC_ATTEMPTS) {
-            Log.w(TAG, String.format("Falha na sincronização (tentativa %d/%d): %s", 
-                currentAttempts, MAX_SYNC_ATTEMPTS, error));
-            
-            // Incrementa contador de tentativas
-            repository.incrementRetryCount(operation.getId(), new OfflineRepository.OperationCallback() {
-                @Override
-                public void onSuccess() {
-                    Log.d(TAG, "Contador de retry incrementado para operação: " + operation.getId());
-                }
-                
-                @Override
-                public void onError(String err) {
-                    Log.e(TAG, "Erro ao incrementar contador de retry: " + err);
-                }
-            });
-        } else {
-            Log.e(TAG, String.format("Operação falhou após %d tentativas: %s", 
-                MAX_SYNC_ATTEMPTS, error));
-            markOperationAsFailed(operation, error);
+    private static long parseRetryAfter(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
     
-    // Interface para callback de sincronização
-    private interface SyncCallback {
-        void onSuccess();
-        void onFailure(String error);
+    /**
+     * Grava o progresso do upload retomável e alimenta a medição de vazão a cada bloco confirmado
+     */
+    private class MeteredProgressStore implements ResumableUploader.ProgressStore {
+        
+        private final int operationId;
+        private long lastOffset;
+        private long lastAt = System.nanoTime();
+        
+        MeteredProgressStore(int operationId, long startOffset) {
+            this.operationId = operationId;
+            this.lastOffset = startOffset;
+        }
+        
+        @Override
+        public void save(String uploadId, long offset, long length) {
+            repository.saveUploadProgressSync(operationId, uploadId, offset, length);
+            
+            long now = System.nanoTime();
+            throughputMeter.record(offset - lastOffset, TimeUnit.NANOSECONDS.toMillis(now - lastAt),
+                System.currentTimeMillis());
+            lastOffset = offset;
+            lastAt = now;
+        }
     }
-}
\ No newline at end of file
+}
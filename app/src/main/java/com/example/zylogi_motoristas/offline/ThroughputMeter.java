@@ -0,0 +1,70 @@
+package com.example.zylogi_motoristas.offline;
+
+/**
+ * Mede a vazão real de envio a partir dos uploads de foto concluídos
+ * Média móvel exponencial; amostras antigas deixam de valer e a medição é zerada ao trocar de rede
+ */
+public final class ThroughputMeter {
+
+    public static final long UNKNOWN = -1;
+
+    static final long MAX_SAMPLE_AGE_MS = 10 * 60 * 1000;
+    static final long MIN_SAMPLE_BYTES = 16 * 1024; // envios menores medem latência, não vazão
+    private static final double SMOOTHING = 0.3;
+
+    private static volatile ThroughputMeter INSTANCE;
+
+    private double upstreamKbps = UNKNOWN;
+    private long lastSampleAt;
+
+    ThroughputMeter() {
+    }
+
+    /**
+     * Obtém a instância singleton (uma medição por processo)
+     */
+    public static ThroughputMeter getInstance() {
+        if (INSTANCE == null) {
+            synchronized (ThroughputMeter.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ThroughputMeter();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Registra um envio de {@code bytes} que levou {@code elapsedMs}
+     */
+    public synchronized void record(long bytes, long elapsedMs, long now) {
+        if (bytes < MIN_SAMPLE_BYTES || elapsedMs <= 0) {
+            return;
+        }
+        double sampleKbps = bytes * 8.0 / elapsedMs; // bits/ms == kbit/s
+        if (upstreamKbps == UNKNOWN || now - lastSampleAt > MAX_SAMPLE_AGE_MS) {
+            upstreamKbps = sampleKbps;
+        } else {
+            upstreamKbps = SMOOTHING * sampleKbps + (1 - SMOOTHING) * upstreamKbps;
+        }
+        lastSampleAt = now;
+    }
+
+    /**
+     * Vazão de envio medida recentemente em kbps, ou {@link #UNKNOWN}
+     */
+    public synchronized long getUpstreamKbps(long now) {
+        if (upstreamKbps == UNKNOWN || now - lastSampleAt > MAX_SAMPLE_AGE_MS) {
+            return UNKNOWN;
+        }
+        return Math.round(upstreamKbps);
+    }
+
+    /**
+     * Descarta a medição (a rede mudou)
+     */
+    public synchronized void reset() {
+        upstreamKbps = UNKNOWN;
+        lastSampleAt = 0;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.zylogi_motoristas.offline;
+
+/**
+ * Decide o que a sincronização envia nas condições de rede atuais
+ * - rede boa ou intermediária: tudo (o tamanho da foto já é ajustado pela UploadRendition)
+ * - rede ruim: só atualizações de status, fotos esperam
+ * - rede inutilizável: nada
+ * Fotos não ficam retidas para sempre: passado o prazo máximo, seguem mesmo em rede ruim,
+ * na versão pequena, para chegarem durante o turno e não só na base
+ */
+public class UploadPolicy {
+
+    public enum Decision {
+        UPLOAD_ALL,
+        STATUS_ONLY,
+        WAIT
+    }
+
+    public static final long DEFAULT_MAX_PHOTO_DEFERRAL_MS = 30 * 60 * 1000;
+
+    private final long maxPhotoDeferralMs;
+
+    public UploadPolicy() {
+        this(DEFAULT_MAX_PHOTO_DEFERRAL_MS);
+    }
+
+    public UploadPolicy(long maxPhotoDeferralMs) {
+        this.maxPhotoDeferralMs = maxPhotoDeferralMs;
+    }
+
+    /**
+     * @param oldestPhotoAgeMs idade da foto pendente mais antiga (0 se não há fotos)
+     */
+    public Decision decide(NetworkQualityClassifier.Quality quality, long oldestPhotoAgeMs) {
+        switch (quality) {
+            case UNUSABLE:
+                return Decision.WAIT;
+            case POOR:
+                return deferPhotos(oldestPhotoAgeMs);
+            default:
+                return Decision.UPLOAD_ALL;
+        }
+    }
+
+    private Decision deferPhotos(long oldestPhotoAgeMs) {
+        return oldestPhotoAgeMs >= maxPhotoDeferralMs ? Decision.UPLOAD_ALL : Decision.STATUS_ONLY;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.zylogi_motoristas.photo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prepara as fotos dos diálogos de finalização
+ * Gera a miniatura na hora e grava o JPEG em arquivo em background,
+ * para que a UI não congele após tirar ou escolher uma foto
+ */
+public class AttachmentPreparer {
+
+    private static final String TAG = "AttachmentPreparer";
+    private static final String DIRECTORY_NAME = "prepared";
+    private static final int THUMBNAIL_MAX_DIMENSION = 256;
+    private static final int JPEG_QUALITY = 85;
+
+    private static volatile AttachmentPreparer INSTANCE;
+
+    private final File directory;
+    private final ExecutorService executor;
+
+    private AttachmentPreparer(Context context) {
+        this.directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Obtém a instância singleton do preparador
+     */
+    public static AttachmentPreparer getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AttachmentPreparer.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AttachmentPreparer(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Inicia a preparação da foto e retorna imediatamente a referência com a miniatura
+     * A foto original passa a pertencer ao preparador e é liberada após a codificação
+     */
+    public PhotoAttachment prepare(Bitmap photo) {
+        PhotoAttachment attachment = new PhotoAttachment(createThumbnail(photo));
+
+        executor.execute(() -> {
+            File output = null;
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Não foi possível criar diretório de fotos");
+                }
+                output = File.createTempFile("photo_", ".jpg", directory);
+                try (OutputStream out = new FileOutputStream(output)) {
+                    if (!photo.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                        throw new IOException("Falha ao comprimir foto");
+                    }
+                }
+                Log.d(TAG, "Foto preparada: " + output.getName() + " (" + output.length() + " bytes)");
+                attachment.complete(output);
+            } catch (IOException e) {
+                Log.e(TAG, "Erro ao preparar foto", e);
+                if (output != null) {
+                    output.delete();
+                }
+                attachment.fail(e.getMessage());
+            } finally {
+                photo.recycle();
+            }
+        });
+
+        return attachment;
+    }
+
+    /**
+     * Miniatura barata (sem filtragem) para a pré-visualização imediata
+     */
+    private static Bitmap createThumbnail(Bitmap photo) {
+        float scale = Math.min(1f, (float) THUMBNAIL_MAX_DIMENSION / Math.max(photo.getWidth(), photo.getHeight()));
+        if (scale >= 1f) {
+            return photo.copy(photo.getConfig() != null ? photo.getConfig() : Bitmap.Config.ARGB_8888, false);
+        }
+        int width = Math.max(1, Math.round(photo.getWidth() * scale));
+        int height = Math.max(1, Math.round(photo.getHeight() * scale));
+        return Bitmap.createScaledBitmap(photo, width, height, false);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.zylogi_motoristas.photo;
+
+import android.graphics.Bitmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Referência leve a uma foto em preparação
+ * O diálogo guarda apenas esta referência e a miniatura; a foto codificada
+ * fica em arquivo e é gravada em background pelo AttachmentPreparer
+ */
+public class PhotoAttachment {
+
+    private final Bitmap thumbnail;
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private volatile File file;
+    private volatile String error;
+    private volatile boolean discarded;
+
+    PhotoAttachment(Bitmap thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
+    /**
+     * Miniatura para pré-visualização, disponível imediatamente
+     */
+    public Bitmap getThumbnail() {
+        return thumbnail;
+    }
+
+    /**
+     * Indica se a codificação já terminou (com sucesso ou erro)
+     */
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /**
+     * Aguarda a codificação e retorna o arquivo JPEG
+     * Bloqueante: nunca chamar na main thread
+     */
+    public File await(long timeout, TimeUnit unit) throws IOException {
+        try {
+            if (!ready.await(timeout, unit)) {
+                throw new IOException("Tempo esgotado ao preparar foto");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Preparação da foto interrompida", e);
+        }
+
+        if (file == null) {
+            throw new IOException(error != null ? error : "Falha ao preparar foto");
+        }
+        return file;
+    }
+
+    /**
+     * Remove o arquivo preparado quando ele não for mais necessário
+     */
+    public void discard() {
+        discarded = true;
+        File current = file;
+        if (current != null) {
+            current.delete();
+        }
+    }
+
+    void complete(File file) {
+        this.file = file;
+        ready.countDown();
+        if (discarded) {
+            file.delete();
+        }
+    }
+
+    void fail(String error) {
+        this.error = error;
+        ready.countDown();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.zylogi_motoristas.photo;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.core.content.FileProvider;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Captura de fotos em arquivo (EXTRA_OUTPUT) via FileProvider
+ * Evita a miniatura de baixa resolução devolvida em extras "data"
+ *
+ * O caminho do arquivo de destino sobrevive à recriação da Activity (saveState/restoreState):
+ * em aparelhos com pouca memória a câmera costuma tirar a Activity da memória
+ */
+public class PhotoCapture {
+
+    private static final String TAG = "PhotoCapture";
+    private static final String DIRECTORY_NAME = "camera";
+    private static final String STATE_PENDING_PATH = "photo_capture_pending_path";
+
+    private final Context context;
+    private File pendingFile;
+
+    public PhotoCapture(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Cria o arquivo de destino e o intent da câmera apontando para ele
+     */
+    public Intent createCaptureIntent() throws IOException {
+        File directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Não foi possível criar diretório da câmera");
+        }
+
+        discardPending();
+        pendingFile = File.createTempFile("capture_", ".jpg", directory);
+        Uri outputUri = FileProvider.getUriForFile(context, authority(context), pendingFile);
+
+        Intent intent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
+        intent.putExtra(MediaStore.EXTRA_OUTPUT, outputUri);
+        intent.addFlags(Intent.FLAG_GRANT_WRITE_URI_PERMISSION | Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        Log.d(TAG, "Captura direcionada para: " + pendingFile.getName());
+        return intent;
+    }
+
+    /**
+     * Retorna a URI da foto capturada, ou null se a câmera não gravou nada
+     * O arquivo passa a ser do chamador, que o apaga com release() depois de decodificar;
+     * uma nova captura não o remove enquanto isso
+     */
+    public Uri takeCapturedUri() {
+        if (pendingFile == null || !pendingFile.isFile() || pendingFile.length() == 0) {
+            return null;
+        }
+        Uri uri = Uri.fromFile(pendingFile);
+        pendingFile = null;
+        return uri;
+    }
+
+    /**
+     * Apaga o arquivo devolvido por takeCapturedUri()
+     */
+    public void release(Uri capturedUri) {
+        if (capturedUri != null && capturedUri.getPath() != null) {
+            new File(capturedUri.getPath()).delete();
+        }
+    }
+
+    /**
+     * Guarda o caminho da captura em andamento (chamar em onSaveInstanceState)
+     */
+    public void saveState(Bundle outState) {
+        if (pendingFile != null) {
+            outState.putString(STATE_PENDING_PATH, pendingFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Recupera a captura em andamento após a recriação da Activity (chamar em onCreate)
+     */
+    public void restoreState(Bundle savedInstanceState) {
+        String path = savedInstanceState != null ? savedInstanceState.getString(STATE_PENDING_PATH) : null;
+        if (path != null && pendingFile == null) {
+            pendingFile = new File(path);
+            Log.d(TAG, "Captura restaurada após recriação: " + pendingFile.getName());
+        }
+    }
+
+    /**
+     * Remove o arquivo temporário da última captura
+     */
+    public void discardPending() {
+        if (pendingFile != null) {
+            pendingFile.delete();
+            pendingFile = null;
+        }
+    }
+
+    public static String authority(Context context) {
+        return context.getPackageName() + ".fileprovider";
+    }
+}
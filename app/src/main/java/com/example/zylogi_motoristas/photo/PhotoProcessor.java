@@ -0,0 +1,157 @@
+package com.example.zylogi_motoristas.photo;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodificação das fotos capturadas ou escolhidas na galeria
+ * Lê apenas as dimensões primeiro, decodifica já reduzido (inSampleSize) e
+ * aplica a orientação EXIF, sempre fora da main thread
+ */
+public class PhotoProcessor {
+
+    private static final String TAG = "PhotoProcessor";
+
+    // Resolução suficiente para a foto de comprovação continuar legível
+    public static final int DEFAULT_MAX_DIMENSION = 1600;
+
+    private static volatile PhotoProcessor INSTANCE;
+
+    private final ContentResolver contentResolver;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+
+    public interface PhotoCallback {
+        void onSuccess(Bitmap bitmap);
+        void onError(String error);
+    }
+
+    private PhotoProcessor(Context context) {
+        this.contentResolver = context.getContentResolver();
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Obtém a instância singleton do processador
+     */
+    public static PhotoProcessor getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (PhotoProcessor.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new PhotoProcessor(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Decodifica a imagem em background e entrega o resultado na main thread
+     */
+    public void process(Uri uri, PhotoCallback callback) {
+        executor.execute(() -> {
+            try {
+                Bitmap bitmap = decode(uri, DEFAULT_MAX_DIMENSION);
+                mainHandler.post(() -> callback.onSuccess(bitmap));
+            } catch (IOException | OutOfMemoryError e) {
+                Log.e(TAG, "Erro ao processar foto: " + uri, e);
+                mainHandler.post(() -> callback.onError(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Decodifica a imagem reduzida para no máximo maxDimension pixels no maior lado,
+     * já rotacionada conforme o EXIF
+     */
+    public Bitmap decode(Uri uri, int maxDimension) throws IOException {
+        // 1. Apenas as dimensões, sem alocar pixels
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Imagem inválida");
+        }
+
+        // 2. Decodifica já reduzida
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxDimension);
+        Bitmap sampled;
+        try (InputStream in = open(uri)) {
+            sampled = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (sampled == null) {
+            throw new IOException("Falha ao decodificar imagem");
+        }
+
+        // 3. Ajuste fino de escala e orientação EXIF em uma única transformação
+        Matrix matrix = new Matrix();
+        int rotation = readRotation(uri);
+        if (rotation != 0) {
+            matrix.postRotate(rotation);
+        }
+        float scale = Math.min(1f, (float) maxDimension / Math.max(sampled.getWidth(), sampled.getHeight()));
+        if (scale < 1f) {
+            matrix.postScale(scale, scale);
+        }
+        if (matrix.isIdentity()) {
+            return sampled;
+        }
+
+        Bitmap transformed = Bitmap.createBitmap(sampled, 0, 0, sampled.getWidth(), sampled.getHeight(), matrix, true);
+        if (transformed != sampled) {
+            sampled.recycle();
+        }
+        Log.d(TAG, String.format("Foto processada: %dx%d -> %dx%d (sample %d, rotação %d)",
+            bounds.outWidth, bounds.outHeight, transformed.getWidth(), transformed.getHeight(),
+            options.inSampleSize, rotation));
+        return transformed;
+    }
+
+    /**
+     * Maior potência de 2 que mantém a imagem com pelo menos maxDimension no maior lado
+     */
+    static int calculateInSampleSize(int width, int height, int maxDimension) {
+        int inSampleSize = 1;
+        int largest = Math.max(width, height);
+        while (largest / (inSampleSize * 2) >= maxDimension) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private int readRotation(Uri uri) {
+        try (InputStream in = open(uri)) {
+            ExifInterface exif = new ExifInterface(in);
+            return exif.getRotationDegrees();
+        } catch (IOException e) {
+            Log.w(TAG, "EXIF indisponível: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private InputStream open(Uri uri) throws IOException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Não foi possível abrir a imagem: " + uri);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,470 @@
+package com.example.zylogi_motoristas.photo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.zylogi_motoristas.BuildConfig;
+import com.example.zylogi_motoristas.offline.AttachmentStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Etapa de codificação das fotos antes do upload
+ * Usada tanto pelo envio online (MainViewModel) quanto pelo SyncWorker,
+ * para que os dois caminhos enviem o mesmo payload compacto
+ *
+ * A qualidade é escolhida por busca binária (e a escala reduzida quando nem a
+ * menor qualidade cabe) para ficar dentro do orçamento de bytes. O resultado
+ * fica em cache pelo hash do conteúdo e pela versão de envio (UploadRendition),
+ * então a mesma foto nunca é codificada duas vezes na mesma versão
+ */
+public class UploadEncoder {
+
+    private static final String TAG = "UploadEncoder";
+    private static final String DIRECTORY_NAME = "encoded";
+
+    public static final long DEFAULT_TARGET_BYTES = 400 * 1024;
+    private static final int MAX_QUALITY = 90;
+    private static final int MIN_QUALITY = 40;
+    private static final float SCALE_STEP = 0.75f;
+    private static final int MIN_DIMENSION = 480;
+    private static final long CACHE_GRACE_PERIOD_MS = 60 * 60 * 1000L; // 1 hora
+
+    /**
+     * Formato enviado ao servidor, configurado por BuildConfig.UPLOAD_ENCODER_MODE
+     */
+    public enum Mode {
+        AS_PREPARED, // Envia o JPEG já preparado pelo AttachmentPreparer (q85) sem recodificar;
+                     // os bytes originais da câmera não são mantidos após a preparação
+        JPEG,        // Recodifica como JPEG respeitando o orçamento de bytes
+        WEBP         // Recodifica como WebP (lossy) respeitando o orçamento de bytes
+    }
+
+    private static volatile UploadEncoder INSTANCE;
+
+    private final File cacheDirectory;
+    private final Mode mode;
+    private final long targetBytes;
+
+    private UploadEncoder(Context context) {
+        this.cacheDirectory = new File(context.getFilesDir(), DIRECTORY_NAME);
+        this.mode = parseMode(BuildConfig.UPLOAD_ENCODER_MODE);
+        this.targetBytes = BuildConfig.UPLOAD_TARGET_BYTES > 0
+            ? BuildConfig.UPLOAD_TARGET_BYTES : DEFAULT_TARGET_BYTES;
+    }
+
+    /**
+     * Obtém a instância singleton do codificador
+     */
+    public static UploadEncoder getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (UploadEncoder.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new UploadEncoder(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getTargetBytes() {
+        return targetBytes;
+    }
+
+    /**
+     * Converte o modo configurado no build, usando JPEG se o valor for inválido
+     */
+    private static Mode parseMode(String value) {
+        if (value != null) {
+            try {
+                return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Modo de codificação inválido: " + value + ", usando JPEG");
+            }
+        }
+        return Mode.JPEG;
+    }
+
+    /**
+     * Prepara o arquivo de foto para upload de acordo com o modo configurado
+     * Nunca deve ser chamado na main thread
+     */
+    public EncodedUpload encode(File source) throws IOException {
+        return encode(source, null, UploadRendition.FULL);
+    }
+
+    /**
+     * Igual a encode(File), reaproveitando o hash já conhecido do conteúdo
+     * (por exemplo, o hash gravado no AttachmentStore)
+     */
+    public EncodedUpload encode(File source, String sourceHash) throws IOException {
+        return encode(source, sourceHash, UploadRendition.FULL);
+    }
+
+    /**
+     * Gera (ou reaproveita do cache) a versão de envio indicada a partir do original
+     */
+    public EncodedUpload encode(File source, String sourceHash, UploadRendition rendition) throws IOException {
+        if (source == null || !source.isFile()) {
+            throw new IOException("Foto não encontrada para upload");
+        }
+
+        Mode currentMode = mode;
+        long budget = budgetFor(rendition);
+
+        if (currentMode == Mode.AS_PREPARED) {
+            return EncodedUpload.original(source);
+        }
+        // Decisão de envio do original já tomada antes para esta versão
+        if (sourceHash != null && originalMarker(sourceHash, currentMode, rendition, budget).isFile()) {
+            return EncodedUpload.original(source);
+        }
+
+        // JPEG que já cabe no orçamento e na dimensão da versão não precisa ser recodificado
+        if (currentMode == Mode.JPEG && source.length() <= budget && fitsDimension(source, rendition)) {
+            markOriginal(sourceHash, currentMode, rendition, budget);
+            return EncodedUpload.original(source);
+        }
+
+        String hash = sourceHash != null ? sourceHash : AttachmentStore.sha256(source);
+        File cached = cacheFile(hash, currentMode, rendition, budget);
+        if (cached.isFile() && cached.length() > 0) {
+            Log.d(TAG, "Foto já codificada em cache: " + cached.getName());
+            cached.setLastModified(System.currentTimeMillis());
+            return new EncodedUpload(cached, mimeType(currentMode), fileName(currentMode), hash);
+        }
+
+        Bitmap bitmap = decodeBounded(source, rendition.maxDimension);
+        if (bitmap == null) {
+            Log.w(TAG, "Falha ao decodificar foto, enviando original");
+            markOriginal(hash, currentMode, rendition, budget);
+            return EncodedUpload.original(source);
+        }
+
+        byte[] encoded;
+        try {
+            encoded = encodeWithinBudget(bitmap, compressFormat(currentMode), budget);
+        } finally {
+            bitmap.recycle();
+        }
+
+        writeAtomically(encoded, cached);
+        Log.d(TAG, String.format("Foto codificada (%s, %s): %d -> %d bytes (orçamento %d)",
+            currentMode, rendition, source.length(), encoded.length, budget));
+        return new EncodedUpload(cached, mimeType(currentMode), fileName(currentMode), hash);
+    }
+
+    /**
+     * Indica se a versão indicada já está resolvida para a configuração atual:
+     * codificada em cache ou registrada como envio do original
+     */
+    public boolean isEncoded(String sourceHash, UploadRendition rendition) {
+        Mode currentMode = mode;
+        if (currentMode == Mode.AS_PREPARED) {
+            return true;
+        }
+        long budget = budgetFor(rendition);
+        return cacheFile(sourceHash, currentMode, rendition, budget).isFile()
+            || originalMarker(sourceHash, currentMode, rendition, budget).isFile();
+    }
+
+    /**
+     * Procura, entre o original e as versões em cache, o arquivo com o tamanho informado
+     * Usado para continuar um upload retomável com exatamente o mesmo arquivo, mesmo que a rede
+     * tenha mudado desde o início do envio; retorna null se nenhum corresponder
+     */
+    public EncodedUpload findEncoded(File source, String sourceHash, long length) {
+        if (source == null || length <= 0) {
+            return null;
+        }
+        if (source.length() == length) {
+            return EncodedUpload.original(source);
+        }
+
+        Mode currentMode = mode;
+        if (currentMode == Mode.AS_PREPARED || sourceHash == null) {
+            return null;
+        }
+        for (UploadRendition rendition : UploadRendition.values()) {
+            File cached = cacheFile(sourceHash, currentMode, rendition, budgetFor(rendition));
+            if (cached.isFile() && cached.length() == length) {
+                cached.setLastModified(System.currentTimeMillis());
+                return new EncodedUpload(cached, mimeType(currentMode), fileName(currentMode), sourceHash);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove do cache as fotos codificadas que não pertencem mais a nenhuma operação
+     * Entradas recentes são mantidas, pois podem estar em uso por um envio online
+     */
+    public int pruneCache(Set<String> liveHashes) {
+        File[] files = cacheDirectory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        long cutoff = System.currentTimeMillis() - CACHE_GRACE_PERIOD_MS;
+        int removed = 0;
+        for (File file : files) {
+            String name = file.getName();
+            int separator = name.indexOf('_');
+            String hash = separator > 0 ? name.substring(0, separator) : name;
+            if (!liveHashes.contains(hash) && file.lastModified() < cutoff && file.delete()) {
+                removed++;
+            }
+        }
+
+        if (removed > 0) {
+            Log.i(TAG, "Fotos codificadas removidas do cache: " + removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Remove do cache todas as versões de uma foto já enviada
+     * Chamado após o upload, para o cache não crescer enquanto o aparelho fica online
+     */
+    public int evict(String sourceHash) {
+        if (sourceHash == null) {
+            return 0;
+        }
+        File[] files = cacheDirectory.listFiles((dir, name) -> name.startsWith(sourceHash + "_"));
+        if (files == null) {
+            return 0;
+        }
+
+        int removed = 0;
+        for (File file : files) {
+            if (file.delete()) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            Log.d(TAG, "Versões da foto enviada removidas do cache: " + removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Procura a maior qualidade que cabe no orçamento; se nem a menor qualidade
+     * couber, reduz a escala e tenta de novo
+     */
+    private byte[] encodeWithinBudget(Bitmap original, Bitmap.CompressFormat format, long budget) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Bitmap current = original;
+
+        try {
+            while (true) {
+                byte[] best = searchQuality(current, format, budget, buffer);
+                if (best != null) {
+                    return best;
+                }
+
+                // Sem sucesso, a última tentativa da busca foi a menor qualidade: guarda como melhor esforço
+                byte[] smallest = buffer.toByteArray();
+
+                int width = Math.round(current.getWidth() * SCALE_STEP);
+                int height = Math.round(current.getHeight() * SCALE_STEP);
+                if (Math.max(width, height) < MIN_DIMENSION) {
+                    Log.w(TAG, "Orçamento de " + budget + " bytes não atingido, usando " + smallest.length + " bytes");
+                    return smallest;
+                }
+
+                Bitmap scaled = Bitmap.createScaledBitmap(current, width, height, true);
+                if (current != original) {
+                    current.recycle();
+                }
+                current = scaled;
+            }
+        } finally {
+            if (current != original) {
+                current.recycle();
+            }
+        }
+    }
+
+    /**
+     * Busca binária da qualidade entre MIN_QUALITY e MAX_QUALITY
+     * Retorna null se nem a menor qualidade couber no orçamento
+     */
+    private byte[] searchQuality(Bitmap bitmap, Bitmap.CompressFormat format, long budget, ByteArrayOutputStream buffer) throws IOException {
+        int low = MIN_QUALITY;
+        int high = MAX_QUALITY;
+        byte[] best = null;
+
+        while (low <= high) {
+            int quality = (low + high) >>> 1;
+            byte[] attempt = compress(bitmap, format, quality, buffer);
+            if (attempt.length <= budget) {
+                best = attempt;
+                low = quality + 1;
+            } else {
+                high = quality - 1;
+            }
+        }
+        return best;
+    }
+
+    private byte[] compress(Bitmap bitmap, Bitmap.CompressFormat format, int quality, ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        if (!bitmap.compress(format, quality, buffer)) {
+            throw new IOException("Falha ao comprimir foto");
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Orçamento da versão, limitado pelo orçamento configurado
+     */
+    private long budgetFor(UploadRendition rendition) {
+        return Math.min(targetBytes, rendition.targetBytes);
+    }
+
+    private static boolean fitsDimension(File source, UploadRendition rendition) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getAbsolutePath(), bounds);
+        return bounds.outWidth > 0 && Math.max(bounds.outWidth, bounds.outHeight) <= rendition.maxDimension;
+    }
+
+    /**
+     * Decodifica a foto limitando a resolução, para não estourar memória com originais grandes
+     */
+    private Bitmap decodeBounded(File source, int maxDimension) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = PhotoProcessor.calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxDimension);
+        Bitmap sampled = BitmapFactory.decodeFile(source.getAbsolutePath(), options);
+        if (sampled == null) {
+            return null;
+        }
+
+        float scale = (float) maxDimension / Math.max(sampled.getWidth(), sampled.getHeight());
+        if (scale >= 1f) {
+            return sampled;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(sampled,
+            Math.round(sampled.getWidth() * scale), Math.round(sampled.getHeight() * scale), true);
+        if (scaled != sampled) {
+            sampled.recycle();
+        }
+        return scaled;
+    }
+
+    private void writeAtomically(byte[] data, File target) throws IOException {
+        if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            throw new IOException("Não foi possível criar diretório de fotos codificadas");
+        }
+
+        File temp = File.createTempFile("encoded_", ".tmp", cacheDirectory);
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(data);
+            }
+            if (!temp.renameTo(target)) {
+                throw new IOException("Falha ao gravar foto codificada: " + target.getName());
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    private File cacheFile(String hash, Mode mode, UploadRendition rendition, long budget) {
+        String extension = mode == Mode.WEBP ? ".webp" : ".jpg";
+        return new File(cacheDirectory, hash + "_" + mode.name().toLowerCase() + "_"
+            + rendition.maxDimension + "_" + budget + extension);
+    }
+
+    /**
+     * Marcador vazio indicando que a versão é o próprio original (já cabe ou não decodifica)
+     * Segue o mesmo padrão de nome do cache, então é removido junto pelo pruneCache/evict
+     */
+    private File originalMarker(String hash, Mode mode, UploadRendition rendition, long budget) {
+        return new File(cacheDirectory, hash + "_" + mode.name().toLowerCase() + "_"
+            + rendition.maxDimension + "_" + budget + ".original");
+    }
+
+    private void markOriginal(String hash, Mode mode, UploadRendition rendition, long budget) {
+        if (hash == null) {
+            return;
+        }
+        try {
+            if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+                return;
+            }
+            File marker = originalMarker(hash, mode, rendition, budget);
+            if (!marker.createNewFile()) {
+                marker.setLastModified(System.currentTimeMillis());
+            }
+        } catch (IOException e) {
+            // Só perde o atalho: a decisão é refeita na próxima vez
+            Log.w(TAG, "Falha ao registrar envio do original: " + e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat compressFormat(Mode mode) {
+        if (mode == Mode.WEBP) {
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+        }
+        return Bitmap.CompressFormat.JPEG;
+    }
+
+    private static String mimeType(Mode mode) {
+        return mode == Mode.WEBP ? "image/webp" : "image/jpeg";
+    }
+
+    private static String fileName(Mode mode) {
+        return mode == Mode.WEBP ? "driver_photo.webp" : "driver_photo.jpg";
+    }
+
+    /**
+     * Resultado da codificação: o arquivo a ser enviado e seus metadados
+     * O arquivo é o original ou uma entrada do cache, então nunca precisa ser apagado pelo chamador
+     * (entradas do cache saem com evict(sourceHash) após o envio)
+     */
+    public static class EncodedUpload {
+        public final File file;
+        public final String mimeType;
+        public final String fileName;
+        public final String sourceHash; // Hash do original quando o arquivo veio do cache, senão null
+
+        EncodedUpload(File file, String mimeType, String fileName, String sourceHash) {
+            this.file = file;
+            this.mimeType = mimeType;
+            this.fileName = fileName;
+            this.sourceHash = sourceHash;
+        }
+
+        static EncodedUpload original(File source) {
+            return new EncodedUpload(source, "image/jpeg", "driver_photo.jpg", null);
+        }
+
+        public boolean isOriginal() {
+            return sourceHash == null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.zylogi_motoristas.photo;
+
+import com.example.zylogi_motoristas.offline.NetworkQualityClassifier;
+
+/**
+ * Versões de envio de uma foto, geradas a partir do original guardado no aparelho
+ * A versão é escolhida na hora do envio, de acordo com a rede:
+ * Wi-Fi / rede boa recebe a foto cheia, 2G / EDGE recebe uma versão pequena que ainda serve de comprovante
+ */
+public enum UploadRendition {
+    FULL(1600, 400 * 1024),  // Wi-Fi ou 4G bom
+    LARGE(1024, 200 * 1024), // LTE / 3G
+    SMALL(640, 80 * 1024);   // 2G / EDGE
+
+    public final int maxDimension;
+    public final long targetBytes;
+
+    UploadRendition(int maxDimension, long targetBytes) {
+        this.maxDimension = maxDimension;
+        this.targetBytes = targetBytes;
+    }
+
+    /**
+     * Versão adequada à qualidade da rede; em rede tarifada desce um degrau
+     */
+    public static UploadRendition forNetwork(NetworkQualityClassifier.Quality quality, boolean metered) {
+        UploadRendition rendition;
+        switch (quality) {
+            case GOOD:
+                rendition = FULL;
+                break;
+            case MODERATE:
+                rendition = LARGE;
+                break;
+            default:
+                rendition = SMALL;
+                break;
+        }
+        return metered ? rendition.smaller() : rendition;
+    }
+
+    /**
+     * Próxima versão menor (a menor retorna ela mesma)
+     */
+    public UploadRendition smaller() {
+        UploadRendition[] values = values();
+        return ordinal() + 1 < values.length ? values[ordinal() + 1] : this;
+    }
+}
@@ -7,6 +7,8 @@ import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import com.example.zylogi_motoristas.R;
 import com.example.zylogi_motoristas.offline.ConnectivityManager;
 import com.example.zylogi_motoristas.offline.OfflineRepository;
@@ -30,6 +32,13 @@ public class OfflineStatusView extends LinearLayout {
     private boolean isConnected = true;
     private int pendingOperations = 0;
     
+    // Contagem observada no Room: atualiza sozinha quando uma finalização ou sync escreve no banco
+    private LiveData<Integer> pendingCount;
+    private final Observer<Integer> pendingCountObserver = count -> {
+        pendingOperations = count != null ? count : 0;
+        updatePendingCount();
+    };
+    
     public OfflineStatusView(Context context) {
         super(context);
         init(context);
@@ -58,6 +67,7 @@ public class OfflineStatusView extends LinearLayout {
         connectivityManager = ConnectivityManager.getInstance(context);
         offlineRepository = OfflineRepository.getInstance(context);
         syncManager = SyncManager.getInstance(context);
+        pendingCount = offlineRepository.observePendingOperationsCount();
         
         // Configurar listeners
         setupListeners();
@@ -93,10 +103,7 @@ public class OfflineStatusView extends LinearLayout {
             
             @Override
             public void onSyncCompleted(int syncedCount, int failedCount) {
-                post(() -> {
-                    updateSyncButtonState(false);
-                    updatePendingCount();
-                });
+                post(() -> updateSyncButtonState(false));
             }
             
             @Override
@@ -122,28 +129,28 @@ public class OfflineStatusView extends LinearLayout {
         }
     }
     
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        pendingCount.observeForever(pendingCountObserver);
+    }
+    
+    @Override
+    protected void onDetachedFromWindow() {
+        pendingCount.removeObserver(pendingCountObserver);
+        super.onDetachedFromWindow();
+    }
+    
     private void updatePendingCount() {
-        offlineRepository.getPendingOperationsCount(new OfflineRepository.CountCallback() {
-            @Override
-            public void onCount(int count) {
-                pendingOperations = count;
-                post(() -> {
-                    if (count > 0) {
-                        pendingCountText.setVisibility(VISIBLE);
-                        pendingCountText.setText(String.format("%d pendente%s", count, count > 1 ? "s" : ""));
-                        syncButton.setVisibility(isConnected ? VISIBLE : GONE);
-                    } else {
-                        pendingCountText.setVisibility(GONE);
-                        syncButton.setVisibility(GONE);
-                    }
-                });
-            }
-            
-            @Override
-            public void onError(String error) {
-                android.util.Log.e(TAG, "Erro ao obter contagem de operações pendentes: " + error);
-            }
-        });
+        int count = pendingOperations;
+        if (count > 0) {
+            pendingCountText.setVisibility(VISIBLE);
+            pendingCountText.setText(String.format("%d pendente%s", count, count > 1 ? "s" : ""));
+            syncButton.setVisibility(isConnected ? VISIBLE : GONE);
+        } else {
+            pendingCountText.setVisibility(GONE);
+            syncButton.setVisibility(GONE);
+        }
     }
     
     private void updateSyncButtonState(boolean syncing) {
@@ -0,0 +1,198 @@
+package com.example.zylogi_motoristas.offline;
+
+import com.example.zylogi_motoristas.ApiService;
+import com.example.zylogi_motoristas.BatchFinalizeRequest;
+import com.example.zylogi_motoristas.BatchFinalizeResponse;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Finalização em lote contra um servidor MockWebServer que simula o endpoint de lote
+ */
+public class BatchFinalizerTest {
+
+    private static final String BATCH_PATH = "/pickups/driver-finalize-app/batch";
+
+    private final Gson gson = new Gson();
+    private MockWebServer server;
+    private BatchFinalizer finalizer;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        ApiService apiService = new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(GsonConverterFactory.create())
+            .build()
+            .create(ApiService.class);
+        finalizer = new BatchFinalizer(apiService);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void fortyOperationsNeedOneRoundTrip() throws Exception {
+        server.setDispatcher(new BatchStandIn(new HashSet<>()));
+
+        List<PendingOperation> operations = operations(40);
+        BatchFinalizer.BatchResult result = finalizer.finalizeAll(operations);
+
+        assertTrue(result.supported);
+        assertEquals(1, server.getRequestCount());
+        assertEquals(40, result.outcomes.size());
+        assertTrue(result.notSent.isEmpty());
+        for (BatchFinalizer.ItemOutcome outcome : result.outcomes) {
+            assertTrue(outcome.success);
+        }
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        BatchFinalizeRequest body = gson.fromJson(request.getBody().readUtf8(), BatchFinalizeRequest.class);
+        BatchFinalizeRequest.Item first = body.getItems().get(0);
+        assertEquals("pickup-1", first.getPickupId());
+        assertEquals(operations.get(0).getIdempotencyKey(), first.getIdempotencyKey());
+        assertEquals("NOT_COMPLETED", first.getUpdates().get("status"));
+        assertEquals("1970-01-01T00:00:01.000Z", first.getUpdates().get("completionDate"));
+    }
+
+    @Test
+    public void eachItemReportsItsOwnOutcome() {
+        Set<String> rejected = new HashSet<>();
+        rejected.add("pickup-2");
+        rejected.add("pickup-4");
+        server.setDispatcher(new BatchStandIn(rejected));
+
+        BatchFinalizer.BatchResult result = finalizer.finalizeAll(operations(5));
+
+        assertEquals(5, result.outcomes.size());
+        for (BatchFinalizer.ItemOutcome outcome : result.outcomes) {
+            boolean shouldFail = rejected.contains(outcome.operation.getPickupId());
+            assertEquals(!shouldFail, outcome.success);
+            if (shouldFail) {
+                assertEquals(422, outcome.httpStatus);
+                assertNotNull(outcome.error);
+            }
+        }
+    }
+
+    @Test
+    public void missingItemInResponseCountsAsFailure() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                List<BatchFinalizeResponse.ItemResult> results = new ArrayList<>();
+                results.add(new BatchFinalizeResponse.ItemResult("1", true, 200, null));
+                return json(new BatchFinalizeResponse(results));
+            }
+        });
+
+        BatchFinalizer.BatchResult result = finalizer.finalizeAll(operations(2));
+
+        assertTrue(result.outcomes.get(0).success);
+        assertFalse(result.outcomes.get(1).success);
+    }
+
+    @Test
+    public void largeBacklogIsSplitIntoChunks() {
+        server.setDispatcher(new BatchStandIn(new HashSet<>()));
+
+        BatchFinalizer.BatchResult result = finalizer.finalizeAll(operations(BatchFinalizer.MAX_BATCH_SIZE + 1));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(BatchFinalizer.MAX_BATCH_SIZE + 1, result.outcomes.size());
+    }
+
+    @Test
+    public void serverWithoutBatchEndpointFallsBack() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        List<PendingOperation> operations = operations(3);
+        BatchFinalizer.BatchResult result = finalizer.finalizeAll(operations);
+
+        assertFalse(result.supported);
+        assertTrue(result.outcomes.isEmpty());
+        assertEquals(operations, result.notSent);
+    }
+
+    @Test
+    public void serverErrorFailsWholeChunk() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        BatchFinalizer.BatchResult result = finalizer.finalizeAll(operations(3));
+
+        assertTrue(result.supported);
+        assertEquals(3, result.outcomes.size());
+        for (BatchFinalizer.ItemOutcome outcome : result.outcomes) {
+            assertFalse(outcome.success);
+            assertEquals(500, outcome.httpStatus);
+        }
+    }
+
+    private static List<PendingOperation> operations(int count) {
+        List<PendingOperation> operations = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            PendingOperation operation = new PendingOperation(
+                "pickup-" + i, "NOT_COMPLETED", "Cliente ausente", null, null, "1000");
+            operation.setId(i);
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    private MockResponse json(Object body) {
+        return new MockResponse()
+            .setHeader("Content-Type", "application/json")
+            .setBody(gson.toJson(body));
+    }
+
+    /**
+     * Simula o endpoint de lote: aceita todos os itens, exceto as coletas rejeitadas
+     */
+    private class BatchStandIn extends Dispatcher {
+        private final Set<String> rejectedPickups;
+
+        BatchStandIn(Set<String> rejectedPickups) {
+            this.rejectedPickups = rejectedPickups;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if (!"POST".equals(request.getMethod()) || !BATCH_PATH.equals(request.getPath())) {
+                return new MockResponse().setResponseCode(404);
+            }
+
+            BatchFinalizeRequest body = gson.fromJson(request.getBody().readUtf8(), BatchFinalizeRequest.class);
+            List<BatchFinalizeResponse.ItemResult> results = new ArrayList<>();
+            for (BatchFinalizeRequest.Item item : body.getItems()) {
+                if (rejectedPickups.contains(item.getPickupId())) {
+                    results.add(new BatchFinalizeResponse.ItemResult(item.getClientId(), false, 422, "Coleta já finalizada"));
+                } else {
+                    results.add(new BatchFinalizeResponse.ItemResult(item.getClientId(), true, 200, null));
+                }
+            }
+            return json(new BatchFinalizeResponse(results));
+        }
+    }
+}
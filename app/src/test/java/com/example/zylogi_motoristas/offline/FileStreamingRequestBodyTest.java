@@ -0,0 +1,154 @@
+package com.example.zylogi_motoristas.offline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.MultipartReader;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Upload de anexos grandes via FileStreamingRequestBody contra um MockWebServer
+ */
+public class FileStreamingRequestBodyTest {
+
+    private static final int TEN_MB = 10 * 1024 * 1024;
+    private static final long MAX_ALLOCATED_BYTES = 2 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void upload_sendsFileBytesUnchanged() throws Exception {
+        File photo = createFile("photo.jpg", TEN_MB);
+
+        server.enqueue(new MockResponse().setBody("{}"));
+        try (Response response = client.newCall(multipartRequest(photo)).execute()) {
+            assertTrue(response.isSuccessful());
+        }
+
+        RecordedRequest recorded = server.takeRequest();
+        String boundary = MediaType.parse(recorded.getHeader("Content-Type")).parameter("boundary");
+
+        try (MultipartReader reader = new MultipartReader(recorded.getBody(), boundary)) {
+            MultipartReader.Part part = reader.nextPart();
+            assertNotNull(part);
+            assertTrue(part.headers().get("Content-Disposition").contains("name=\"driverAttachmentUrl\""));
+
+            Buffer received = new Buffer();
+            part.body().readAll(received);
+            assertEquals(TEN_MB, received.size());
+            assertEquals(sha256(photo), received.sha256().hex());
+        }
+    }
+
+    @Test
+    public void upload_keepsHeapAllocationBounded() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = threadMXBean();
+        File warmUp = createFile("warmup.jpg", 64 * 1024);
+        File photo = createFile("photo.jpg", TEN_MB);
+
+        // Primeira chamada carrega classes e abre a conexão
+        server.enqueue(new MockResponse().setBody("{}"));
+        client.newCall(multipartRequest(warmUp)).execute().close();
+        server.takeRequest();
+
+        server.enqueue(new MockResponse().setBody("{}"));
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        try (Response response = client.newCall(multipartRequest(photo)).execute()) {
+            assertTrue(response.isSuccessful());
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(server.takeRequest().getBodySize() > TEN_MB);
+        assertTrue("Alocado durante o upload: " + allocated + " bytes", allocated < MAX_ALLOCATED_BYTES);
+    }
+
+    private Request multipartRequest(File photo) {
+        RequestBody imageBody = new FileStreamingRequestBody(MediaType.parse("image/jpeg"), photo);
+        MultipartBody body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("driverAttachmentUrl", "image.jpg", imageBody)
+                .addFormDataPart("status", "COMPLETED")
+                .build();
+
+        return new Request.Builder()
+                .url(server.url("/pickups/1/driver-finalize-app"))
+                .patch(body)
+                .build();
+    }
+
+    private File createFile(String name, int size) throws IOException {
+        File file = folder.newFile(name);
+        Random random = new Random(42);
+        byte[] chunk = new byte[64 * 1024];
+        try (OutputStream out = new FileOutputStream(file)) {
+            for (int written = 0; written < size; written += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk, 0, Math.min(chunk.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    private static String sha256(File file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return AttachmentStore.toHex(digest.digest());
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+}
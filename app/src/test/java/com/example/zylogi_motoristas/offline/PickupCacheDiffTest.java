@@ -0,0 +1,96 @@
+package com.example.zylogi_motoristas.offline;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Diferença entre a resposta da API e o cache de coletas
+ */
+public class PickupCacheDiffTest {
+
+    private static final String DRIVER_ID = "driver-1";
+
+    private static PickupEntity pickup(String id, String status) {
+        PickupEntity entity = new PickupEntity();
+        entity.setId(id);
+        entity.setReferenceId("REF-" + id);
+        entity.setScheduledDate("2026-10-18T08:00:00.000Z");
+        entity.setStatus(status);
+        entity.setClientData("{\"name\":\"Cliente " + id + "\"}");
+        entity.setDriverId(DRIVER_ID);
+        return entity;
+    }
+
+    private static Map<String, String> stored(PickupEntity... entities) {
+        Map<String, String> hashes = new HashMap<>();
+        for (PickupEntity entity : entities) {
+            hashes.put(entity.getId(), PickupCacheDiff.contentHash(entity));
+        }
+        return hashes;
+    }
+
+    @Test
+    public void unchangedPickupsAreNotRewritten() {
+        Map<String, String> hashes = stored(pickup("a", "PENDING"), pickup("b", "PENDING"));
+
+        PickupCacheDiff diff = PickupCacheDiff.compute(hashes,
+            Arrays.asList(pickup("a", "PENDING"), pickup("b", "PENDING")), true);
+
+        assertTrue(diff.isEmpty());
+        assertEquals(2, diff.unchanged);
+    }
+
+    @Test
+    public void classifiesInsertsUpdatesAndDeletions() {
+        Map<String, String> hashes = stored(pickup("a", "PENDING"), pickup("b", "PENDING"), pickup("c", "PENDING"));
+
+        PickupCacheDiff diff = PickupCacheDiff.compute(hashes,
+            Arrays.asList(pickup("a", "PENDING"), pickup("b", "COMPLETED"), pickup("d", "PENDING")), true);
+
+        assertEquals(1, diff.inserts.size());
+        assertEquals("d", diff.inserts.get(0).getId());
+        assertEquals(1, diff.updates.size());
+        assertEquals("b", diff.updates.get(0).getId());
+        assertEquals(Arrays.asList("c"), diff.deletions);
+        assertEquals(1, diff.unchanged);
+        assertNotNull(diff.inserts.get(0).getContentHash());
+    }
+
+    @Test
+    public void partialResponseDoesNotDelete() {
+        Map<String, String> hashes = stored(pickup("a", "PENDING"), pickup("b", "PENDING"));
+
+        PickupCacheDiff diff = PickupCacheDiff.compute(hashes,
+            Arrays.asList(pickup("b", "COMPLETED")), false);
+
+        assertTrue(diff.deletions.isEmpty());
+        assertEquals(1, diff.updates.size());
+    }
+
+    @Test
+    public void rowWithLocalStatusIsRewritten() {
+        // Status gravado localmente zera o hash da linha (PickupDao.updatePickupStatus)
+        Map<String, String> hashes = stored(pickup("a", "PENDING"));
+        hashes.put("a", null);
+
+        PickupCacheDiff diff = PickupCacheDiff.compute(hashes, Arrays.asList(pickup("a", "PENDING")), true);
+
+        assertEquals(1, diff.updates.size());
+        assertEquals(0, diff.unchanged);
+    }
+
+    @Test
+    public void localTimestampsDoNotChangeHash() {
+        PickupEntity first = pickup("a", "PENDING");
+        PickupEntity second = pickup("a", "PENDING");
+        second.setCachedAt(12345L);
+        second.setLastUpdated(67890L);
+
+        assertEquals(PickupCacheDiff.contentHash(first), PickupCacheDiff.contentHash(second));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.zylogi_motoristas.offline;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+/**
+ * Servidor local que simula o endpoint de upload retomável (POST/HEAD/PATCH uploads)
+ * Pode derrubar a conexão no meio de um trecho, guardando só parte dos bytes recebidos
+ */
+class ResumableUploadStandIn extends Dispatcher {
+
+    private final Map<String, Buffer> uploads = new HashMap<>();
+    private final Map<String, Long> lengths = new HashMap<>();
+    private int createCount;
+    private int patchCount;
+    private long bytesReceived;
+    private int dropOnPatch = -1;
+
+    /**
+     * Derruba a conexão no n-ésimo PATCH (contando a partir de 1)
+     */
+    synchronized void dropConnectionOnPatch(int patchNumber) {
+        this.dropOnPatch = patchNumber;
+    }
+
+    synchronized int getCreateCount() {
+        return createCount;
+    }
+
+    synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    synchronized byte[] contentOf(String uploadId) {
+        return uploads.get(uploadId).snapshot().toByteArray();
+    }
+
+    synchronized void forget(String uploadId) {
+        uploads.remove(uploadId);
+        lengths.remove(uploadId);
+    }
+
+    @Override
+    public synchronized MockResponse dispatch(RecordedRequest request) {
+        String path = request.getPath();
+        String method = request.getMethod();
+
+        if ("POST".equals(method) && "/uploads".equals(path)) {
+            createCount++;
+            String id = "upload-" + createCount;
+            uploads.put(id, new Buffer());
+            lengths.put(id, Long.parseLong(request.getHeader("Upload-Length")));
+            return new MockResponse().setResponseCode(201).setHeader("Location", "/uploads/" + id);
+        }
+
+        if (path == null || !path.startsWith("/uploads/")) {
+            return new MockResponse().setResponseCode(404);
+        }
+        String id = path.substring("/uploads/".length());
+        Buffer stored = uploads.get(id);
+        if (stored == null) {
+            return new MockResponse().setResponseCode(404);
+        }
+
+        if ("HEAD".equals(method)) {
+            return new MockResponse()
+                .setHeader("Upload-Offset", stored.size())
+                .setHeader("Upload-Length", lengths.get(id));
+        }
+
+        if ("PATCH".equals(method)) {
+            patchCount++;
+            long offset = Long.parseLong(request.getHeader("Upload-Offset"));
+            Buffer body = request.getBody();
+            bytesReceived += body.size();
+            if (offset != stored.size()) {
+                return new MockResponse().setResponseCode(409);
+            }
+
+            if (patchCount == dropOnPatch) {
+                // Conexão caiu no meio do trecho: só metade chegou ao servidor
+                long half = body.size() / 2;
+                stored.write(body, half);
+                return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+            }
+
+            stored.writeAll(body);
+            return new MockResponse().setResponseCode(204).setHeader("Upload-Offset", stored.size());
+        }
+
+        return new MockResponse().setResponseCode(405);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.zylogi_motoristas.offline;
+
+import com.example.zylogi_motoristas.ApiService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upload retomável contra o servidor local ResumableUploadStandIn
+ */
+public class ResumableUploaderTest {
+
+    private static final int FILE_SIZE = 1024 * 1024;
+    private static final long CHUNK_SIZE = 256 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ResumableUploadStandIn standIn;
+    private ResumableUploader uploader;
+    private File photo;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        standIn = new ResumableUploadStandIn();
+        server = new MockWebServer();
+        server.setDispatcher(standIn);
+        server.start();
+
+        // Sem retry automático do OkHttp, para que a queda de conexão chegue ao uploader
+        OkHttpClient client = new OkHttpClient.Builder().retryOnConnectionFailure(false).build();
+        ApiService apiService = new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .client(client)
+            .build()
+            .create(ApiService.class);
+        uploader = new ResumableUploader(apiService, CHUNK_SIZE);
+
+        content = new byte[FILE_SIZE];
+        new Random(7).nextBytes(content);
+        photo = folder.newFile("photo.jpg");
+        try (OutputStream out = new FileOutputStream(photo)) {
+            out.write(content);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsFileInChunksAndRecordsEachOffset() throws IOException {
+        RecordingStore store = new RecordingStore();
+
+        String uploadId = uploader.upload(photo, "image/jpeg", null, 0, store);
+
+        assertArrayEquals(content, standIn.contentOf(uploadId));
+        assertEquals(FILE_SIZE, store.offset);
+        assertEquals(FILE_SIZE, store.length);
+        assertEquals(1 + FILE_SIZE / CHUNK_SIZE, store.saves); // criação + um por trecho
+    }
+
+    @Test
+    public void resumesFromConfirmedOffsetAfterDroppedConnection() throws IOException {
+        standIn.dropConnectionOnPatch(3);
+        RecordingStore store = new RecordingStore();
+
+        try {
+            uploader.upload(photo, "image/jpeg", null, 0, store);
+            fail("A queda de conexão deveria interromper o upload");
+        } catch (IOException expected) {
+            // Dois trechos confirmados antes da queda
+        }
+        assertEquals(2 * CHUNK_SIZE, store.offset);
+        long sentBeforeDrop = standIn.getBytesReceived();
+
+        // Reconectou: continua do progresso persistido, sem recriar o upload
+        String uploadId = uploader.upload(photo, "image/jpeg", store.uploadId, store.length, store);
+
+        assertEquals(store.uploadId, uploadId);
+        assertEquals(1, standIn.getCreateCount());
+        assertArrayEquals(content, standIn.contentOf(uploadId));
+        // O servidor guardou metade do trecho perdido: só o restante é reenviado
+        long resent = standIn.getBytesReceived() - sentBeforeDrop;
+        assertEquals(FILE_SIZE - 2 * CHUNK_SIZE - CHUNK_SIZE / 2, resent);
+    }
+
+    @Test
+    public void restartsWhenServerForgotTheUpload() throws IOException {
+        RecordingStore store = new RecordingStore();
+        String first = uploader.upload(photo, "image/jpeg", null, 0, store);
+        standIn.forget(first);
+
+        String second = uploader.upload(photo, "image/jpeg", first, FILE_SIZE, store);
+
+        assertNotEquals(first, second);
+        assertEquals(2, standIn.getCreateCount());
+        assertArrayEquals(content, standIn.contentOf(second));
+    }
+
+    @Test
+    public void restartsWhenFileChanged() throws IOException {
+        RecordingStore store = new RecordingStore();
+        String first = uploader.upload(photo, "image/jpeg", null, 0, store);
+
+        byte[] smaller = Arrays.copyOf(content, FILE_SIZE / 2);
+        try (OutputStream out = new FileOutputStream(photo)) {
+            out.write(smaller);
+        }
+        String second = uploader.upload(photo, "image/jpeg", first, FILE_SIZE, store);
+
+        assertNotEquals(first, second);
+        assertArrayEquals(smaller, standIn.contentOf(second));
+    }
+
+    @Test(expected = ResumableUploader.UnsupportedException.class)
+    public void serverWithoutUploadEndpointIsReported() throws IOException {
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(okhttp3.mockwebserver.RecordedRequest request) {
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+
+        uploader.upload(photo, "image/jpeg", null, 0, new RecordingStore());
+    }
+
+    /**
+     * Simula a linha da operação no Room
+     */
+    private static class RecordingStore implements ResumableUploader.ProgressStore {
+        String uploadId;
+        long offset;
+        long length;
+        int saves;
+
+        @Override
+        public void save(String uploadId, long offset, long length) {
+            this.uploadId = uploadId;
+            this.offset = offset;
+            this.length = length;
+            saves++;
+        }
+    }
+}